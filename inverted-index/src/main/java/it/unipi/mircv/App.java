@@ -59,40 +59,32 @@ public class App
         invertedIndexBuilder.insertDocument(new ParsedDocument(128,str2.toLowerCase().split(" "),"2"));
         invertedIndexBuilder.insertDocument(new ParsedDocument(258,str3.toLowerCase().split(" "),"3"));
 
-        invertedIndexBuilder.sortLexicon();
-        invertedIndexBuilder.sortInvertedIndex();
         writeToFiles(invertedIndexBuilder, 1);
 
         invertedIndexBuilder.insertDocument(new ParsedDocument(12000,str4.toLowerCase().split(" "),"4"));
         invertedIndexBuilder.insertDocument(new ParsedDocument(2121990,str5.toLowerCase().split(" "),"5"));
 
-        invertedIndexBuilder.sortLexicon();
-        invertedIndexBuilder.sortInvertedIndex();
         writeToFiles(invertedIndexBuilder, 2);
 
         invertedIndexBuilder.insertDocument(new ParsedDocument(3000000,str6.toLowerCase().split(" "),"6"));
 
-        invertedIndexBuilder.sortLexicon();
-        invertedIndexBuilder.sortInvertedIndex();
         writeToFiles(invertedIndexBuilder, 3);
     }
 
     private static void writeToFiles(InvertedIndexBuilder invertedIndexBuilder, int blockNumber){
 
-        //Write the inverted index's files into the block's files
-        invertedIndexBuilder.writeInvertedIndexToFile(
+        //Write the block's lexicon and inverted index into the block's files, sorted by term
+        invertedIndexBuilder.writeBlockToFiles(
+                "src/main/resources/tmp/lexiconBlock"+blockNumber+".txt",
                 "src/main/resources/tmp/invertedIndexDocIds"+blockNumber+".txt",
                 "src/main/resources/tmp/invertedIndexFrequencies"+blockNumber+".txt");
 
-        //Write the block's lexicon into the given file
-        invertedIndexBuilder.writeLexiconToFile("src/main/resources/tmp/lexiconBlock"+blockNumber+".txt");
-
         System.out.println("Block "+blockNumber+" written");
 
         System.out.println("Inverted index: \n"+invertedIndexBuilder.getInvertedIndex());
         System.out.println("Lexicon: \n"+invertedIndexBuilder.getLexicon());
 
-        //Clear the inverted index and lexicon data structure and call the garbage collector
+        //Clear the inverted index and lexicon data structure
         invertedIndexBuilder.clear();
     }
 
@@ -4,8 +4,13 @@ import it.unipi.mircv.beans.Configuration;
 import it.unipi.mircv.beans.DocumentIndexEntry;
 import it.unipi.mircv.beans.ParsedDocument;
 import it.unipi.mircv.beans.Statistics;
+import it.unipi.mircv.builder.BlockFlusher;
 import it.unipi.mircv.builder.InvertedIndexBuilder;
+import it.unipi.mircv.compressor.PostingCodec;
+import it.unipi.mircv.compressor.VariableByteCodec;
+import it.unipi.mircv.io.BinaryWriter;
 import it.unipi.mircv.merger.IndexMerger;
+import it.unipi.mircv.parser.ParallelParser;
 import it.unipi.mircv.parser.Parser;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -38,8 +43,26 @@ public class Indexer {
             "-c : compression enabled\n" +
             "-sc : both enabled";
 
-    //Percentage of memory used to define a threshold
-    static final double PERCENTAGE = 0.7;
+    //Memory budget in bytes of the data structures of a block, when it is reached the block is flushed to disk. By
+    // default it is a quarter of the maximum heap, to leave room to the parsing threads and to the flush
+    static final long BLOCK_MEMORY_BUDGET = Long.getLong("mircv.blockBudget", Runtime.getRuntime().maxMemory() / 4);
+
+    //Name of the codec used to compress the posting lists when the compression is enabled
+    static final String POSTING_CODEC = System.getProperty("mircv.codec", VariableByteCodec.NAME);
+
+    //Number of postings of each skip block, 0 to use sqrt(n) postings for a posting list of length n. With a fixed size
+    // the frequencies of the compressed skip blocks are bit packed
+    static final int SKIP_BLOCK_SIZE = Integer.getInteger("mircv.skipBlockSize", 0);
+
+    //Number of threads used to parse the documents
+    static final int PARSER_THREADS = Integer.getInteger("mircv.parserThreads", Runtime.getRuntime().availableProcessors());
+
+    //Number of documents sent to a parser thread at a time
+    static final int BATCH_SIZE = 1000;
+
+    //True to write the full blocks in a background thread while the parsing continues in a new block. Two blocks can
+    // be in memory at the same time, so the budget of each block should be at most half of the memory available
+    static final boolean BACKGROUND_FLUSH = Boolean.getBoolean("mircv.backgroundFlush");
 
     /**
      * Build an inverted index for the collection in the given path; it uses the SPIMI algorithm and build different
@@ -54,7 +77,7 @@ public class Indexer {
 
         //Try to open the collection provided
         try (FileInputStream fileInputStream = new FileInputStream(file);
-             RandomAccessFile documentIndexFile = new RandomAccessFile(DOCUMENT_INDEX_PATH, "rw")) {
+             BinaryWriter documentIndexFile = new BinaryWriter(DOCUMENT_INDEX_PATH)) {
 
             //Create an input stream for the tar archive
             TarArchiveInputStream tarInput = new TarArchiveInputStream(new GzipCompressorInputStream(fileInputStream));
@@ -71,9 +94,6 @@ public class Indexer {
                 //Create a BufferedReader in order to access one line of the file at a time
                 BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
 
-                //Variable to keep the current line read from the buffer
-                String line;
-
                 //Instantiate the inverted index builder for the current block
                 InvertedIndexBuilder invertedIndexBuilder = new InvertedIndexBuilder();
 
@@ -86,116 +106,118 @@ public class Indexer {
                 //Counter to keep the number of documents read for the current block
                 int blockDocuments = 0;
 
-                //String to keep the current document processed
-                ParsedDocument parsedDocument;
-
                 //Retrieve the time at the beginning of the computation
                 long begin = System.nanoTime();
 
-                //Retrieve the initial free memory
-                long initialMemory = Runtime.getRuntime().freeMemory();
-
-                //Retrieve the total memory allocated for the execution of the current runtime
-                long totalMemory = Runtime.getRuntime().totalMemory();
-
-                //Retrieve the memory used at the beginning of the computation
-                long beforeUsedMem=Runtime.getRuntime().totalMemory()-Runtime.getRuntime().freeMemory();
+                //Retrieve the maximum memory that the runtime can use
+                long maxMemory = Runtime.getRuntime().maxMemory();
 
-                //Define the threshold of memory over which the index must be flushed to disk
-                long THRESHOLD = (long) (totalMemory * PERCENTAGE);
-
-                System.out.println("[INDEXER] Initial total memory allocated "+ totalMemory/(1024*1024)+"MB");
-                System.out.println("[INDEXER] Initial free memory "+ initialMemory/(1024*1024)+"MB");
-                System.out.println("[INDEXER] Initial memory used "+ beforeUsedMem/(1024*1024)+"MB");
-                System.out.println("[INDEXER] Memory threshold: " + THRESHOLD/(1024*1024)+"MB -> " + PERCENTAGE * 100 + "%");
+                System.out.println("[INDEXER] Maximum memory "+ maxMemory/(1024*1024)+"MB");
+                System.out.println("[INDEXER] Block memory budget: " + BLOCK_MEMORY_BUDGET/(1024*1024)+"MB");
+                System.out.println("[INDEXER] Background flush: " + BACKGROUND_FLUSH);
                 System.out.println("[INDEXER] Starting to fetch the documents...");
 
-                //Iterate over the lines
-                while ((line = bufferedReader.readLine()) != null ) {
-
-                    //Process the document using the stemming and stopwords removal
-                    parsedDocument = Parser.processDocument(line, stopwordsRemovalAndStemming);
-
-                    //If the parsing of the document was completed correctly, it'll be appended to the collection buffer
-                    if (parsedDocument!= null && parsedDocument.getTerms().length != 0) {
-
-                        //updating the average number of documents
-                        avdl = avdl*(numberOfDocuments)/(numberOfDocuments + 1) + ((float) parsedDocument.getTerms().length)/(numberOfDocuments + 1);
-
-                        //Increase the number of documents analyzed in total
-                        numberOfDocuments++;
-
-                        //Increase the number of documents analyzed in the current block
-                        blockDocuments++;
-
-                        //Set the docid of the current document
-                        parsedDocument.setDocId(numberOfDocuments);
-
-                        //System.out.println("[INDEXER] Doc: "+parsedDocument.docId + " read with " + parsedDocument.documentLength + "terms");
-                        invertedIndexBuilder.insertDocument(parsedDocument);
-
-                        //Insert the document index row in the document index file. It's the building of the document
-                        // index. The document index will be read from file in the future, the important is to build it
-                        // and store it inside a file.
-                        DocumentIndexEntry docEntry = new DocumentIndexEntry(parsedDocument.getDocNo(), parsedDocument.getDocumentLength());
-                        docEntry.writeToDisk(documentIndexFile, numberOfDocuments);
-
-                        //Check if the memory used is above the threshold defined
-                        if(!isMemoryAvailable(THRESHOLD)){
-                            System.out.println("[INDEXER] Flushing " + blockDocuments + " documents to disk...");
-
-                            //Sorting the lexicon and the inverted index
-                            invertedIndexBuilder.sortLexicon();
-                            invertedIndexBuilder.sortInvertedIndex();
-
-                            //Write the inverted index and the lexicon in the file
-                            writeToFiles(invertedIndexBuilder, blockNumber);
-
-                            System.out.println("[INDEXER] Block "+blockNumber+" written to disk!");
-
-                            //Handle the blocks' information
-                            blockNumber++;
-                            blockDocuments = 0;
-
-                            //Clear the inverted index data structure and call the garbage collector
-                            invertedIndexBuilder.clear();
-                        }
-
-                        //Print checkpoint information
-                        if(numberOfDocuments%50000 == 0){
-                            System.out.println("[INDEXER] " + numberOfDocuments+ " processed");
-                            System.out.println("[INDEXER] Processing time: " + (System.nanoTime() - begin)/1000000000+ "s");
-                            if(debug) {
-                                System.out.println("[DEBUG] Document index entry: " + docEntry);
-                                System.out.println("[DEBUG] Memory used: " + getMemoryUsed()*100 + "%");
+                //Parse the documents with multiple threads, the batches are returned in the order of the collection so
+                // the docids are the same of a sequential parsing. The full blocks are sorted and written by the flusher
+                try(ParallelParser parallelParser = new ParallelParser(bufferedReader, stopwordsRemovalAndStemming, PARSER_THREADS, BATCH_SIZE);
+                    BlockFlusher blockFlusher = new BlockFlusher(Indexer::writeToFiles)) {
+
+                    //Batch of documents parsed
+                    ParsedDocument[] batch;
+
+                    //Iterate over the batches
+                    while ((batch = parallelParser.nextBatch()) != null) {
+
+                        //Iterate over the documents of the batch
+                        for (ParsedDocument parsedDocument : batch) {
+
+                            //If the parsing of the document was completed correctly, it'll be appended to the collection buffer
+                            if (parsedDocument!= null && parsedDocument.getTerms().length != 0) {
+
+                                //updating the average number of documents
+                                avdl = avdl*(numberOfDocuments)/(numberOfDocuments + 1) + ((float) parsedDocument.getTerms().length)/(numberOfDocuments + 1);
+
+                                //Increase the number of documents analyzed in total
+                                numberOfDocuments++;
+
+                                //Increase the number of documents analyzed in the current block
+                                blockDocuments++;
+
+                                //Set the docid of the current document
+                                parsedDocument.setDocId(numberOfDocuments);
+
+                                //System.out.println("[INDEXER] Doc: "+parsedDocument.docId + " read with " + parsedDocument.documentLength + "terms");
+                                invertedIndexBuilder.insertDocument(parsedDocument);
+
+                                //Insert the document index row in the document index file. It's the building of the document
+                                // index. The document index will be read from file in the future, the important is to build it
+                                // and store it inside a file.
+                                DocumentIndexEntry docEntry = new DocumentIndexEntry(parsedDocument.getDocNo(), parsedDocument.getDocumentLength());
+                                docEntry.writeToDisk(documentIndexFile, numberOfDocuments);
+
+                                //Check if the memory used by the block has reached the budget, the footprint is computed by
+                                // the builder so the size of the blocks doesn't depend on the garbage collector
+                                if(invertedIndexBuilder.getMemoryFootprint() >= BLOCK_MEMORY_BUDGET){
+                                    System.out.println("[INDEXER] Flushing " + blockDocuments + " documents to disk...");
+
+                                    //Sort and write the block, it waits if the previous block is still being written
+                                    blockFlusher.submit(invertedIndexBuilder, blockNumber);
+
+                                    if(BACKGROUND_FLUSH){
+                                        //Continue the parsing in a new block while the full one is written
+                                        invertedIndexBuilder = new InvertedIndexBuilder();
+                                    }else{
+                                        //Wait for the block to be written, the builder is cleared and reused
+                                        blockFlusher.waitPendingFlush();
+                                        System.out.println("[INDEXER] Block "+blockNumber+" written to disk!");
+                                    }
+
+                                    //Handle the blocks' information
+                                    blockNumber++;
+                                    blockDocuments = 0;
+                                }
+
+                                //Print checkpoint information
+                                if(numberOfDocuments%50000 == 0){
+                                    System.out.println("[INDEXER] " + numberOfDocuments+ " processed");
+                                    System.out.println("[INDEXER] Processing time: " + (System.nanoTime() - begin)/1000000000+ "s");
+                                    if(debug) {
+                                        System.out.println("[DEBUG] Document index entry: " + docEntry);
+                                        System.out.println("[DEBUG] Memory used: " + getMemoryUsed()*100 + "%");
+                                        if(stopwordsRemovalAndStemming) {
+                                            System.out.println("[DEBUG] " + Parser.getStemCache());
+                                        }
+                                    }
+                                }
                             }
                         }
                     }
-                }
-                if(blockDocuments > 0 ){
 
-                    System.out.println("[INDEXER] Last block reached");
-                    System.out.println("[INDEXER] Flushing " + blockDocuments + " documents to disk...");
+                    if(blockDocuments > 0 ){
 
-                    //Sort the lexicon and the inverted index
-                    invertedIndexBuilder.sortLexicon();
-                    invertedIndexBuilder.sortInvertedIndex();
+                        System.out.println("[INDEXER] Last block reached");
+                        System.out.println("[INDEXER] Flushing " + blockDocuments + " documents to disk...");
 
-                    //Write the inverted index and the lexicon in the file
-                    writeToFiles(invertedIndexBuilder, blockNumber);
+                        //Sort and write the last block
+                        blockFlusher.submit(invertedIndexBuilder, blockNumber);
+                    }else{
+                        //No documents in the last block
+                        blockNumber--;
+                    }
 
-                    System.out.println("[INDEXER] Block "+blockNumber+" written to disk");
+                    //Wait for all the blocks to be written before saving the statistics
+                    blockFlusher.waitPendingFlush();
 
-                    //Write the blocks statistics
-                    Statistics.writeStatistics(blockNumber, numberOfDocuments, avdl);
+                    System.out.println("[INDEXER] All the blocks written to disk");
+                }
 
-                    System.out.println("[INDEXER] Statistics of the blocks written to disk");
+                //Write the blocks statistics
+                Statistics.writeStatistics(blockNumber, numberOfDocuments, avdl);
 
-                }else{
-                    //Write the blocks statistics
-                    Statistics.writeStatistics(blockNumber-1, numberOfDocuments, avdl);
+                System.out.println("[INDEXER] Statistics of the blocks written to disk");
 
-                    System.out.println("[INDEXER] Statistics of the blocks written to disk");
+                if(stopwordsRemovalAndStemming) {
+                    System.out.println("[INDEXER] Stem cache hit rate: " + Parser.getStemCache().getHitRate()*100 + "%");
                 }
 
                 System.out.println("[INDEXER] Total processing time: " + (System.nanoTime() - begin)/1000000000+ "s");
@@ -208,39 +230,25 @@ public class Indexer {
 
 
     /**
-     * Write the inverted index and the lexicon blocks, the number of the block is passed as parameter. At the end
-     * it clears the data structures and call the garbage collector
+     * Sort and write the inverted index and the lexicon blocks, the number of the block is passed as parameter. At the
+     * end it clears the data structures. It can be executed by the background flusher thread.
      * @param invertedIndexBuilder Inverted index builder object containing the inverted index and the lexicon
      * @param blockNumber Number of the block that will be written
      */
     private static void writeToFiles(InvertedIndexBuilder invertedIndexBuilder, int blockNumber){
 
-        //Write the inverted index's files into the block's files
-        invertedIndexBuilder.writeInvertedIndexToFile(
+        //Write the block's lexicon and inverted index into the block's files, sorted by term
+        invertedIndexBuilder.writeBlockToFiles(
+                LEXICON_BLOCK_PATH+blockNumber+".txt",
                 DOCIDS_BLOCK_PATH+blockNumber+".txt",
                 FREQUENCIES_BLOCK_PATH +blockNumber+".txt");
 
-        //Write the block's lexicon into the given file
-        invertedIndexBuilder.writeLexiconToFile(LEXICON_BLOCK_PATH+blockNumber+".txt");
-
         System.out.println("Block "+blockNumber+" written");
 
-        //Clear the inverted index and lexicon data structure and call the garbage collector
+        //Clear the inverted index and lexicon data structure
         invertedIndexBuilder.clear();
     }
 
-    /**
-     * Return true if the memory used is under the threshold, so there is enough free memory to continue the computation
-     * otherwise it will return false.
-     * @param threshold Memory threshold in byte.
-     */
-    private static boolean isMemoryAvailable(long threshold){
-
-        //Subtract the free memory at the moment to the total memory allocated obtaining the memory used, then check
-        //if the memory used is above the threshold
-        return Runtime.getRuntime().totalMemory()-Runtime.getRuntime().freeMemory() < threshold;
-    }
-
     /**
      * Method to clear the Files folder
      */
@@ -305,9 +313,25 @@ public class Indexer {
             return;
         }
 
+        if(SKIP_BLOCK_SIZE < 0){
+            System.err.println("Invalid skip block size: " + SKIP_BLOCK_SIZE);
+            return;
+        }
+
+        //Check the name of the codec before the indexing
+        if(compressed){
+            try {
+                PostingCodec.forName(POSTING_CODEC);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                return;
+            }
+        }
+
         System.out.println("[INDEXER] Configuration\n" +
                 "\tStemming and stopwords removal: " + stemmingAndStopwordsRemoval+"\n" +
-                "\tCompression: " + compressed + "\n" +
+                "\tCompression: " + compressed + (compressed ? " (" + POSTING_CODEC + ")" : "") + "\n" +
+                "\tSkip block size: " + (SKIP_BLOCK_SIZE > 0 ? SKIP_BLOCK_SIZE : "sqrt(n)") + "\n" +
                 "\tDebug: " + debug);
 
         clearFiles();
@@ -316,10 +340,10 @@ public class Indexer {
         parseCollection(COLLECTION_PATH, stemmingAndStopwordsRemoval, debug);
 
         //Merge the blocks to obtain the inverted index, compressed indicates if the compression is enabled
-        IndexMerger.merge(compressed, debug);
+        IndexMerger.merge(compressed, POSTING_CODEC, SKIP_BLOCK_SIZE, debug);
 
         System.out.println("[INDEXER] Saving execution configuration...");
-        Configuration.saveConfiguration(stemmingAndStopwordsRemoval, compressed, debug);
+        Configuration.saveConfiguration(stemmingAndStopwordsRemoval, compressed, debug, POSTING_CODEC, SKIP_BLOCK_SIZE);
 
         System.out.println("[INDEXER] Configuration saved");
 
@@ -1,16 +1,32 @@
 package it.unipi.mircv.beans;
 
+import it.unipi.mircv.compressor.VariableByteCodec;
+
 import java.io.*;
 
 public class Configuration {
     final static String PATH = "Files/configuration.txt";
 
+    //Version of the layout of the index files, written in the configuration and incremented when the layout changes.
+    // The version 2 encodes the compressed docids as gaps from the previous docid of the same skip block, while the
+    // indexes without a version, compressed with Variable Byte, contain the docids as they are
+    public final static int FORMAT_VERSION = 2;
+
     private boolean stemmingAndStopwordsRemoval;
 
     private boolean compressed;
 
     private boolean debug;
 
+    //Name of the codec used to compress the posting lists, the indexes without it were compressed with Variable Byte
+    private String codec = VariableByteCodec.NAME;
+
+    //Number of postings of each skip block, 0 if the skip blocks have sqrt(n) postings as in the indexes without it
+    private int skipBlockSize = 0;
+
+    //Version of the layout of the index files, 0 if the index has been built before the versions were introduced
+    private int formatVersion = 0;
+
     public boolean loadConfiguration() {
         try {
             //creates a new file instance
@@ -33,9 +49,26 @@ public class Configuration {
             if((line = br.readLine()) != null){
                 debug = Boolean.parseBoolean(line);
             }
+            if((line = br.readLine()) != null){
+                codec = line;
+            }
+            if((line = br.readLine()) != null){
+                skipBlockSize = Integer.parseInt(line);
+            }
+            if((line = br.readLine()) != null){
+                formatVersion = Integer.parseInt(line);
+            }
 
             fr.close();
 
+            //The uncompressed indexes without a version have the same layout of the version 2, while the docids of the
+            // compressed ones can't be decoded
+            if(formatVersion != FORMAT_VERSION && (formatVersion != 0 || compressed)){
+                System.err.println("The inverted index has been built with a different format (version " + formatVersion +
+                        ", expected " + FORMAT_VERSION + "). Create a new index, then start again the query processor.");
+                return false;
+            }
+
         } catch (IOException e) {
             System.err.println("No indexing configuration found. Try to first create a new index, then start again the"+
                     " query processor.");
@@ -48,13 +81,28 @@ public class Configuration {
         this.debug = debug;
     }
 
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+    public void setSkipBlockSize(int skipBlockSize) {
+        this.skipBlockSize = skipBlockSize;
+    }
+
     /**
      * Write the configuration of the inverted index, in particular if the stemming and stopwords removal were enabled
      * and the same for compression.
      * @param stemmingAndStopwordsRemoval true if the stemming and stopwords removal were enabled during the indexing.
      * @param compressed true if the compression was enabled during the indexing.
+     * @param codec name of the codec used to compress the posting lists.
+     * @param skipBlockSize number of postings of each skip block, 0 if the skip blocks have sqrt(n) postings.
      */
-    public static void saveConfiguration(boolean stemmingAndStopwordsRemoval, boolean compressed, boolean debug){
+    public static void saveConfiguration(boolean stemmingAndStopwordsRemoval, boolean compressed, boolean debug, String codec,
+                                         int skipBlockSize){
 
         //Object used to build the lexicon line into a string
         StringBuilder stringBuilder = new StringBuilder();
@@ -69,7 +117,10 @@ public class Configuration {
             stringBuilder
                     .append(stemmingAndStopwordsRemoval).append("\n")
                     .append(compressed).append("\n")
-                    .append(debug).append("\n");
+                    .append(debug).append("\n")
+                    .append(codec).append("\n")
+                    .append(skipBlockSize).append("\n")
+                    .append(FORMAT_VERSION).append("\n");
 
             //Write the string in the file
             bufferedWriter.write(stringBuilder.toString());
@@ -92,10 +143,24 @@ public class Configuration {
 
     public boolean getDebug() { return debug; }
 
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getSkipBlockSize() {
+        return skipBlockSize;
+    }
+
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
     @Override
     public String toString() {
         return "\tStemming and stopwords removal: " + stemmingAndStopwordsRemoval +
                 "\n\tCompressed: " + compressed +
+                (compressed ? "\n\tCodec: " + codec : "") +
+                "\n\tSkip block size: " + (skipBlockSize > 0 ? skipBlockSize : "sqrt(n)") +
                 "\n\tDebug: " + debug;
     }
 }
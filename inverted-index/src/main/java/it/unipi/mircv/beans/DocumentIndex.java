@@ -1,4 +1,8 @@
 package it.unipi.mircv.beans;
+import it.unipi.mircv.io.BinaryReader;
+
+import java.io.File;
+import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.util.HashMap;
@@ -66,4 +70,38 @@ public class DocumentIndex extends HashMap<Long, DocumentIndexEntry> {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Load only the lengths of the documents, reading the document index file sequentially. The docids are assigned
+     * consecutively starting from 1, so the length of a document is stored at the position of its docid, 4 bytes per
+     * document instead of a seek in the file for each posting.
+     * @return array containing at position i the length of the document with docid i, the position 0 is not used.
+     */
+    public static int[] loadDocumentLengths() {
+
+        //Number of entries in the document index file
+        int numberOfDocuments = (int) (new File(DOCUMENT_INDEX_PATH).length() / DocumentIndexEntry.DOCUMENT_INDEX_ENTRY_LENGTH);
+
+        int[] documentLengths = new int[numberOfDocuments + 1];
+
+        //Array of bytes in which skip the docno
+        byte[] docnoBytes = new byte[DocumentIndexEntry.DOCNO_LENGTH];
+
+        try (BinaryReader documentIndexFile = new BinaryReader(DOCUMENT_INDEX_PATH)) {
+
+            for (int i = 0; i < numberOfDocuments; i++) {
+
+                //Read the docid, skip the docno and read the length of the document
+                long docid = documentIndexFile.readLong();
+                documentIndexFile.readFully(docnoBytes);
+                documentLengths[(int) docid] = documentIndexFile.readInt();
+            }
+
+        } catch (IOException e) {
+            System.err.println("[DOCUMENT INDEX LOADER] Error loading the document lengths: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        return documentLengths;
+    }
 }
@@ -1,13 +1,13 @@
 package it.unipi.mircv.beans;
 
+import it.unipi.mircv.io.BinaryWriter;
 import it.unipi.mircv.utils.Utils;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 /**
  * Class that represents an entry of the document index, it contains the docno and the document length. The class
- * contains methods to write the document index into a random access file.
+ * contains methods to write the document index into a binary file.
  */
 public class DocumentIndexEntry {
 
@@ -50,23 +50,18 @@ public class DocumentIndexEntry {
 
     /**
      * Writes the document index entry to disk
-     * @param randomAccessFile the file to write to
+     * @param documentIndexFile the buffered writer of the file to write to
      * @param docId the id of the document
      */
-    public void writeToDisk(RandomAccessFile randomAccessFile, int docId){
+    public void writeToDisk(BinaryWriter documentIndexFile, int docId){
 
         //Fill with whitespaces to keep the length standard
         String tmp = Utils.leftpad(this.docNo, DOCNO_LENGTH);
 
-        //Instantiating the ByteBuffer to write to the file
-        byte[] docIdBytes = ByteBuffer.allocate(DOCID_LENGTH).putLong(docId).array();
-        byte[] docNoBytes = ByteBuffer.allocate(DOCNO_LENGTH).put(tmp.getBytes()).array();
-        byte[] docLenBytes = ByteBuffer.allocate(DOCLENGTH_LENGTH).putInt(this.docLength).array();
-
         try {
-            randomAccessFile.write(docIdBytes);
-            randomAccessFile.write(docNoBytes);
-            randomAccessFile.write(docLenBytes);
+            documentIndexFile.writeLong(docId);
+            documentIndexFile.writeFixedLength(tmp.getBytes(), DOCNO_LENGTH);
+            documentIndexFile.writeInt(this.docLength);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,99 @@
+package it.unipi.mircv.beans;
+
+import it.unipi.mircv.io.MappedFile;
+
+import java.io.IOException;
+
+/**
+ * Reader of the inverted index files shared by the whole process. The docids, frequencies and skip blocks files are
+ * memory mapped the first time the reader is used, together with the configuration of the index, then the posting
+ * lists read their skip blocks directly from the mappings, without opening the files at each query.
+ */
+public class IndexReader {
+
+    //Path of docids file
+    private final static String DOCIDS_PATH = "Files/docids.txt";
+
+    //Path of frequencies' file
+    private final static String FREQUENCIES_PATH = "Files/frequencies.txt";
+
+    //Path of skip blocks' file
+    private final static String SKIP_BLOCKS_PATH = "Files/skipblocks.txt";
+
+    //Instance shared by the process, created at the first use
+    private static volatile IndexReader instance;
+
+    //Configuration used to build the inverted index
+    private final Configuration configuration;
+
+    //Mappings of the index files
+    private final MappedFile docIds;
+    private final MappedFile frequencies;
+    private final MappedFile skipBlocks;
+
+    /**
+     * Constructor of the class, it loads the configuration and maps the index files.
+     * @throws IllegalStateException if the configuration is missing or the index has been built with another format
+     */
+    private IndexReader() {
+        configuration = new Configuration();
+        if(!configuration.loadConfiguration()){
+            throw new IllegalStateException("The configuration of the inverted index can't be loaded");
+        }
+
+        try {
+            docIds = new MappedFile(DOCIDS_PATH);
+            frequencies = new MappedFile(FREQUENCIES_PATH);
+            skipBlocks = new MappedFile(SKIP_BLOCKS_PATH);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Constructor of a reader of an index stored in other files than the ones of the process, built with the given
+     * configuration.
+     * @param configuration Configuration used to build the index
+     * @param docIdsPath Path of the docids file
+     * @param frequenciesPath Path of the frequencies file
+     * @param skipBlocksPath Path of the skip blocks file
+     */
+    public IndexReader(Configuration configuration, String docIdsPath, String frequenciesPath, String skipBlocksPath)
+            throws IOException {
+        this.configuration = configuration;
+        docIds = new MappedFile(docIdsPath);
+        frequencies = new MappedFile(frequenciesPath);
+        skipBlocks = new MappedFile(skipBlocksPath);
+    }
+
+    /**
+     * Get the reader shared by the process, mapping the index files at the first call.
+     * @return the index reader.
+     */
+    public static IndexReader getInstance() {
+        if(instance == null){
+            synchronized (IndexReader.class){
+                if(instance == null){
+                    instance = new IndexReader();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public MappedFile getDocIds() {
+        return docIds;
+    }
+
+    public MappedFile getFrequencies() {
+        return frequencies;
+    }
+
+    public MappedFile getSkipBlocks() {
+        return skipBlocks;
+    }
+}
@@ -2,9 +2,9 @@ package it.unipi.mircv.beans;
 
 public class Posting {
     long docId;
-    Integer frequency;
+    int frequency;
 
-    public Posting(long doc_id, Integer frequency) {
+    public Posting(long doc_id, int frequency) {
         this.docId = doc_id;
         this.frequency = frequency;
     }
@@ -13,7 +13,7 @@ public class Posting {
         return docId;
     }
 
-    public Integer getFrequency() {
+    public int getFrequency() {
         return frequency;
     }
 
@@ -1,42 +1,30 @@
 package it.unipi.mircv.beans;
 
-import it.unipi.mircv.compressor.Compressor;
+import it.unipi.mircv.compressor.PostingCodec;
+import it.unipi.mircv.io.MappedFile;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.Iterator;
 
 /**
- * This class represents a posting list, it is implemented as an arrayList of postings; it provides methods to load
- * the posting list of a given term into memory and iterate over it.
+ * This class represents a posting list, it provides methods to load the posting list of a given term and iterate over
+ * it. Only the current skip block is in memory: its docids and frequencies are decoded in two arrays, reused for all
+ * the skip blocks, and the cursor moves by index on them, so the iteration doesn't allocate any object. The skip
+ * blocks are read from the index files mapped by the IndexReader, so opening and closing a posting list doesn't open
+ * any file.
+ * The frequencies are read only when getFreq is called: the compressed frequencies of a skip block are decoded at the
+ * first call on one of its postings, while the uncompressed ones are read one at a time from the mapping. The postings
+ * skipped by nextGEQ, or moved past without being scored, never have their frequencies read.
  */
-public class PostingList extends ArrayList<Posting> {
+public class PostingList {
 
     //Current docid
     private long docId;
 
-    //Current frequency
-    private int frequency;
-
     //If we've reached the end of the posting list
     private boolean noMorePostings;
 
-    //Iterator to iterate over the posting list
-    private Iterator<Posting> iterator;
-
-    //Iterator to iterate over the skip blocks
-    private Iterator<SkipBlock> skipBlocksIterator;
-
-    //Path of docids file
-    private final static String DOCIDS_PATH = "Files/docids.txt";
-
-    //Path of frequencies' file
-    private final static String FREQUENCIES_PATH = "Files/frequencies.txt";
-
-    //Path of skip blocks' file
-    private final static String SKIP_BLOCKS_PATH = "Files/skipblocks.txt";
+    //Skip blocks of the posting list
+    private ArrayList<SkipBlock> skipBlocks;
 
     //TermInfo of the term, used to retrieve the idf
     private TermInfo termInfo;
@@ -47,60 +35,94 @@ public class PostingList extends ArrayList<Posting> {
     //Used to store the starting configuration
     private Configuration configuration;
 
-    //Random access file used to read the docids
-    RandomAccessFile randomAccessFileDocIds;
+    //Mapping of the docids file
+    private MappedFile docIdsFile;
+
+    //Mapping of the frequencies file
+    private MappedFile frequenciesFile;
+
+    //Codec used to decode the compressed skip blocks
+    private PostingCodec codec;
+
+    //Index of the current skip block and number of postings of each skip block, except the last one
+    private int currentSkipBlockIndex;
+    private int skipBlocksLength;
 
-    //Random access file used to read the frequencies
-    RandomAccessFile randomAccessFileFrequencies;
+    //Arrays reused to read and decode the skip blocks, they grow to the size of the largest skip block
+    private byte[] compressedBuffer = new byte[0];
+    private long[] docIdsBuffer = new long[0];
+    private int[] frequenciesBuffer = new int[0];
 
-    //Random access file used to read the skip blocks
-    RandomAccessFile randomAccessFileSkipBlocks;
+    //Number of postings of the current skip block and index in the buffers of the next posting to be returned
+    private int skipBlockPostings;
+    private int position;
+
+    //True if the compressed frequencies of the current skip block have been decoded
+    private boolean frequenciesLoaded;
+
+    //Posting returned by next, updated at each call, its frequency is read only if requested
+    private final Posting posting = new Posting(0, 0) {
+        @Override
+        public int getFrequency() {
+            return getFreq();
+        }
+
+        @Override
+        public String toString() {
+            return "[" + docId + ", " + getFreq() + ']';
+        }
+    };
 
 
     /**
      * Constructor
      */
     public PostingList() {
-        super();
         noMorePostings = false;
     }
 
 
     /**
-     * Loads the posting list of the given term in memory, this list uses the skipping mechanism.
+     * Opens the posting list of the given term and loads its first skip block, this list uses the skipping mechanism.
      * @param termInfo Lexicon entry of the term, used to retrieve the offsets and the lengths of the posting list
      */
     public void openList(TermInfo termInfo){
 
+        //Retrieve the index files and the configuration used to build the inverted index, shared by all the posting lists
+        openList(termInfo, IndexReader.getInstance());
+    }
+
+    /**
+     * Opens the posting list of the given term in the index of the given reader and loads its first skip block.
+     * @param termInfo Lexicon entry of the term, used to retrieve the offsets and the lengths of the posting list
+     * @param indexReader Reader of the index containing the posting list
+     */
+    public void openList(TermInfo termInfo, IndexReader indexReader){
+
         //Set the terminfo of the posting list
         this.termInfo = termInfo;
 
-        //Load the configuration used to build the inverted index
-        configuration = new Configuration();
-        configuration.loadConfiguration();
-
-        //Open the stream with the posting list random access files
-        try {
-            randomAccessFileDocIds = new RandomAccessFile(DOCIDS_PATH, "r");
-            randomAccessFileFrequencies = new RandomAccessFile(FREQUENCIES_PATH, "r");
-            randomAccessFileSkipBlocks = new RandomAccessFile(SKIP_BLOCKS_PATH,"r");
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        configuration = indexReader.getConfiguration();
+        docIdsFile = indexReader.getDocIds();
+        frequenciesFile = indexReader.getFrequencies();
 
+        if(configuration.getCompressed()){
+            codec = PostingCodec.forLayout(configuration.getCodec(), configuration.getSkipBlockSize());
+        }
 
         //Load the skip blocks list of the current term's posting list
-        //Skip blocks of the posting list
-        ArrayList<SkipBlock> skipBlocks = readPostingListSkipBlocks(
-                randomAccessFileSkipBlocks,
+        skipBlocks = readPostingListSkipBlocks(
+                indexReader.getSkipBlocks(),
                 termInfo.getOffsetSkipBlock(),
                 termInfo.getNumberOfSkipBlocks()
         );
 
-        //initialize the skip blocks iterator
-        skipBlocksIterator = skipBlocks.iterator();
+        currentSkipBlockIndex = -1;
+
+        //The skip blocks have the same number of postings, computed as during the merge, except the last one
+        skipBlocksLength = SkipBlock.postingsPerSkipBlock(termInfo.getPostingListLength(), configuration.getSkipBlockSize());
 
-        //move the skip blocks' iterator to the first skip block
+        //move to the first skip block
         nextSkipBlock();
 
         //Load the posting list of the current block
@@ -108,44 +130,42 @@ public class PostingList extends ArrayList<Posting> {
     }
 
     /**
-     * Loads the posting list of the current block
+     * Loads the postings of the current skip block in the buffers and moves the cursor to the first of them
      */
     public void loadPostingList(){
-        //Retrieve the docids and the frequencies
-        ArrayList<Long> docids;
-        ArrayList<Integer> frequencies;
 
         //If the compression is enabled, then read the posting lists files with the compression
         if(configuration.getCompressed()) {
 
-            docids = readPostingListDocIdsCompressed(randomAccessFileDocIds,
-                    termInfo.getOffsetDocId() + currentSkipBlock.startDocidOffset,
-                    currentSkipBlock.skipBlockDocidLength);
+            //Number of postings of the current skip block, the last skip block contains the remaining postings
+            skipBlockPostings = Math.min(skipBlocksLength,
+                    termInfo.getPostingListLength() - currentSkipBlockIndex * skipBlocksLength);
 
-            frequencies = readPostingListFrequenciesCompressed(randomAccessFileFrequencies,
-                    termInfo.getOffsetFrequency() + currentSkipBlock.startFreqOffset,
-                    currentSkipBlock.skipBlockFreqLength);
-        }else {//Read without compression
+            ensureCapacity(skipBlockPostings);
 
-            docids = readPostingListDocIds(randomAccessFileDocIds,
+            //Decode the docids of the skip block in the array reused between the skip blocks, the frequencies are
+            // decoded only if requested
+            readSkipBlockDocIdsCompressed(docIdsFile,
                     termInfo.getOffsetDocId() + currentSkipBlock.startDocidOffset,
-                    currentSkipBlock.skipBlockDocidLength);
+                    currentSkipBlock.skipBlockDocidLength,
+                    skipBlockPostings);
 
-            frequencies = readPostingListFrequencies(randomAccessFileFrequencies,
-                    termInfo.getOffsetFrequency() + currentSkipBlock.startFreqOffset,
-                    currentSkipBlock.skipBlockFreqLength);
-        }
+        }else {//Read without compression
 
-        //Remove the previous postings
-        this.clear();
+            //Without compression the length of the skip block is its number of postings
+            skipBlockPostings = currentSkipBlock.skipBlockDocidLength;
 
-        //Create the array list of postings
-        for(int i = 0; i < docids.size() ; i++){
-            this.add(new Posting(docids.get(i), frequencies.get(i)));
+            ensureCapacity(skipBlockPostings);
+
+            //Retrieve the docids, the frequencies are read from the mapping only if requested
+            readSkipBlockDocIds(docIdsFile,
+                    termInfo.getOffsetDocId() + currentSkipBlock.startDocidOffset,
+                    skipBlockPostings);
         }
 
-        //Update the iterator for the current posting list
-        iterator = this.iterator();
+        //Move the cursor to the first posting of the skip block
+        position = 0;
+        frequenciesLoaded = false;
 
         if(configuration.getDebug()){
             System.out.println("------------------");
@@ -154,78 +174,74 @@ public class PostingList extends ArrayList<Posting> {
     }
 
     /**
-     * Moves the iterator to the next posting in the iteration
-     * @return the next posting
+     * Moves the cursor to the next posting in the iteration
+     * @return the next posting, the same object is updated and returned at each call; null if the posting list ended
      */
     public Posting next(){
 
-        //System.out.println("This.docID: " + this.docId + "/" + currentSkipBlock.maxDocid);
-        if(this.docId == currentSkipBlock.maxDocid){
-            //System.out.println("Last docId of the block");
-            if(skipBlocksIterator.hasNext()){
+        //If the postings of the current skip block are finished, then load the next skip block
+        if(position == skipBlockPostings){
+            if(hasNextSkipBlock()){
                 nextSkipBlock();
             }else {
-                //System.out.println("Posting list ended");
                 setNoMorePostings();
                 return null;
             }
 
             loadPostingList();
-
         }
 
-        //Get the next posting in the iteration
-        Posting result = iterator.next();
-
         //Update the current information
-        this.docId = result.docId;
-        this.frequency = result.frequency;
+        docId = docIdsBuffer[position];
+        position++;
 
         //Return the next
-        return result;
+        posting.docId = docId;
+        return posting;
     }
 
     /**
-     * Move the skip blocks iterator to the next skip block and set the current skip block to it.
+     * Move to the next skip block and set the current skip block to it.
      */
     public void nextSkipBlock(){
-        currentSkipBlock = skipBlocksIterator.next();
+        currentSkipBlockIndex++;
+        currentSkipBlock = skipBlocks.get(currentSkipBlockIndex);
+    }
+
+    /**
+     * Check if the current skip block is not the last one.
+     * @return true if there is a skip block after the current one
+     */
+    private boolean hasNextSkipBlock(){
+        return currentSkipBlockIndex + 1 < skipBlocks.size();
     }
 
     /**
      * Search the next doc id of the current posting list, such that is greater or equal to the searched doc id.
-     * It exploits the skip blocks to traverse faster the posting list
+     * It exploits the skip blocks to traverse faster the posting list: the first skip block that can contain the
+     * searched doc id is found with a binary search on the max docids, so the skip blocks in between are never
+     * decoded, then the doc id is searched in the skip block with a galloping search from the current position.
      * @param searchedDocId doc id to search
      * posting are present in the posting list
      */
     public void nextGEQ(long searchedDocId){
 
-        if(this.docId == searchedDocId){
+        //The current posting already satisfies the search
+        if(this.docId >= searchedDocId){
             return;
         }
 
         if(configuration.getDebug()){
             System.out.println("[DEBUG] Max docId in current skipBlock < searched docId: " + currentSkipBlock.maxDocid +" < "+ searchedDocId);
         }
-        //Move to the next skip block until we find that the searched doc id can be contained in the
-        // portion of the posting list described by the skip block
-        while(currentSkipBlock.maxDocid < searchedDocId){
 
-            //If it is possible to move to the next skip block, then move the iterator
-            if(skipBlocksIterator.hasNext()){
+        //If the current skip block can't contain the searched doc id, then move to the first one that can contain it
+        if(currentSkipBlock.maxDocid < searchedDocId){
 
-                //Debug
-                if(configuration.getDebug()){
-                    System.out.println("[DEBUG] Changing the skip block");
-                }
+            int skipBlockIndex = searchSkipBlock(searchedDocId);
 
-                //Move the iterator to the next skip block
-                nextSkipBlock();
-                loadPostingList();
-            }else{
-
-                //All the skip blocks are traversed, the posting list doesn't contain a doc id GEQ than
-                // the one searched
+            //All the skip blocks are traversed, the posting list doesn't contain a doc id GEQ than the one searched
+            if(skipBlockIndex == skipBlocks.size()){
 
                 //Debug
                 if(configuration.getDebug()){
@@ -238,57 +254,98 @@ public class PostingList extends ArrayList<Posting> {
                 return;
             }
 
+            //Debug
             if(configuration.getDebug()){
-                System.out.println("[DEBUG] Max docId in the new skipBlock < searched docId: " + currentSkipBlock.maxDocid +" < "+ searchedDocId);
+                System.out.println("[DEBUG] Changing the skip block: " + currentSkipBlockIndex + " -> " + skipBlockIndex);
             }
-        }
 
-        //load the posting lists related to the current skip block, once we've found a posting list portion
-        // that can contain the searched doc id
+            //Move to the skip block and load its postings
+            currentSkipBlockIndex = skipBlockIndex;
+            currentSkipBlock = skipBlocks.get(skipBlockIndex);
+            loadPostingList();
+        }
 
+        //Move the cursor in the current skip block, that contains a doc id GEQ than the one searched
+        position = searchPosting(searchedDocId);
 
-        //Helper variable to hold the posting during the traversing of the posting list
-        Posting posting;
+        docId = docIdsBuffer[position];
+        position++;
+    }
 
-        //While we have more postings
-        while(iterator.hasNext()){
-            //Move to the next posting
-            posting = next();
-            if(posting.docId > searchedDocId){
-                return;
+    /**
+     * Binary search, among the skip blocks after the current one, of the first skip block whose max doc id is greater
+     * or equal to the given doc id.
+     * @param searchedDocId doc id to search
+     * @return the index of the skip block, or the number of skip blocks if no skip block can contain the doc id.
+     */
+    private int searchSkipBlock(long searchedDocId){
+        int low = currentSkipBlockIndex + 1;
+        int high = skipBlocks.size();
+
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(skipBlocks.get(middle).maxDocid < searchedDocId){
+                low = middle + 1;
+            }else{
+                high = middle;
             }
         }
 
-        //No postings are GEQ in the current posting list, we've finished the traversing the whole posting list
-        if(!skipBlocksIterator.hasNext())
-            setNoMorePostings();
+        return low;
     }
 
+    /**
+     * Galloping search, in the postings of the current skip block starting from the cursor, of the first doc id
+     * greater or equal to the given one: the distance from the cursor is doubled until a greater or equal doc id is
+     * found, then a binary search is done in the last interval. The max doc id of the skip block must be greater or
+     * equal to the searched one.
+     * @param searchedDocId doc id to search
+     * @return the index in the buffers of the doc id found.
+     */
+    private int searchPosting(long searchedDocId){
 
+        //All the doc ids before low are lower than the searched one
+        int low = position;
+        int high = position;
+        int step = 1;
 
+        while(high < skipBlockPostings && docIdsBuffer[high] < searchedDocId){
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+
+        //The last doc id of the skip block is its max doc id, so it is GEQ than the searched one
+        high = Math.min(high, skipBlockPostings - 1);
 
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(docIdsBuffer[middle] < searchedDocId){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+
+        return low;
+    }
 
     /**
      * Returns true if the iteration has more elements.
-     * (In other words, returns true if next would return an element rather than throwing an exception.)
+     * (In other words, returns true if next would return an element rather than null.)
      * @return true if the iteration has more elements.
      */
     public boolean hasNext(){
-        return iterator.hasNext();
+        return position < skipBlockPostings || hasNextSkipBlock();
     }
 
     /**
-     * Clear the array list
+     * Close the posting list, the index files are shared and remain mapped
      */
     public void closeList(){
-        this.clear();
-        try {
-            randomAccessFileDocIds.close();
-            randomAccessFileFrequencies.close();
-            randomAccessFileSkipBlocks.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        skipBlocks = null;
+        skipBlockPostings = 0;
+        position = 0;
     }
 
     /**
@@ -300,11 +357,38 @@ public class PostingList extends ArrayList<Posting> {
     }
 
     /**
-     * Get the current frequency.
-     * @return the current frequency.
+     * Get the current frequency, it is read from the index only when requested.
+     * @return the current frequency, 0 if the cursor has not been moved to the first posting.
      */
     public int getFreq(){
-        return frequency;
+        if(position == 0){
+            return 0;
+        }
+        return frequencyAt(position - 1);
+    }
+
+    /**
+     * Get the frequency of a posting of the current skip block. Without compression the frequency is read from the
+     * mapping, otherwise the frequencies of the skip block are decoded at the first call.
+     * @param index index of the posting in the skip block
+     * @return the frequency of the posting.
+     */
+    private int frequencyAt(int index){
+
+        if(!configuration.getCompressed()){
+            return frequenciesFile.getInt(termInfo.getOffsetFrequency() + currentSkipBlock.startFreqOffset
+                    + (long) index * Integer.BYTES);
+        }
+
+        if(!frequenciesLoaded){
+            readSkipBlockFrequenciesCompressed(frequenciesFile,
+                    termInfo.getOffsetFrequency() + currentSkipBlock.startFreqOffset,
+                    currentSkipBlock.skipBlockFreqLength,
+                    skipBlockPostings);
+            frequenciesLoaded = true;
+        }
+
+        return frequenciesBuffer[index];
     }
 
     /**
@@ -326,180 +410,108 @@ public class PostingList extends ArrayList<Posting> {
         return termInfo;
     }
 
-
     /**
-     * Reads the posting list's ids from the given inverted index file, starting from offset it will read the number
-     * of docIds indicated by the given length parameter. It assumes that the file is compressed using VBE.
-     * @param randomAccessFileDocIds RandomAccessFile of the docIds block file
-     * @param offset offset starting from where to read the posting list
-     * @param length length of the bytes of the encoded posting list
+     * Make sure that the docids and frequencies buffers can contain the given number of postings.
+     * @param count number of postings
      */
-    public static ArrayList<Long> readPostingListDocIdsCompressed(RandomAccessFile randomAccessFileDocIds, long offset, int length) {
-
-        byte[] docidsByte = new byte[length];
-
-        try {
-
-            //Set the file pointer to the start of the posting list
-            randomAccessFileDocIds.seek(offset);
-
-            randomAccessFileDocIds.readFully(docidsByte, 0, length);
-
-            return Compressor.variableByteDecodeLong(docidsByte);
-
-        } catch (IOException e) {
-            System.err.println("[ReadPostingListDocIds] Exception during seek");
-            throw new RuntimeException(e);
+    private void ensureCapacity(int count) {
+        if(docIdsBuffer.length < count){
+            docIdsBuffer = new long[count];
+            frequenciesBuffer = new int[count];
         }
     }
 
-
     /**
-     * Reads the posting list's frequencies from the given inverted index file, starting from offset it will read the number
-     * of docIds indicated by the given length parameter. It assumes that the file is compressed using VBE.
-     * @param randomAccessFileFreq RandomAccessFile of the frequencies file
-     * @param offset offset starting from where to read the posting list
-     * @param length length of the bytes of the encoded posting list
+     * Reads the compressed docids of a skip block, starting from the given offset, and decodes them in the docids
+     * array of the posting list using the codec of the index.
+     * @param docIdsFile Mapping of the docIds file
+     * @param offset offset of the skip block
+     * @param length length of the bytes of the encoded skip block
+     * @param count number of docids of the skip block
      */
-    public static ArrayList<Integer> readPostingListFrequenciesCompressed(RandomAccessFile randomAccessFileFreq, long offset, int length) {
-
-        byte[] docidsByte = new byte[length];
-
-        try {
-
-            //Set the file pointer to the start of the posting list
-            randomAccessFileFreq.seek(offset);
+    private void readSkipBlockDocIdsCompressed(MappedFile docIdsFile, long offset, int length, int count) {
 
-            randomAccessFileFreq.readFully(docidsByte, 0, length);
+        readCompressedBytes(docIdsFile, offset, length);
 
-            return Compressor.variableByteDecode(docidsByte);
-
-        } catch (IOException e) {
-            System.err.println("[ReadPostingListDocIds] Exception during seek");
-            throw new RuntimeException(e);
-        }
+        codec.decodeDocIds(compressedBuffer, 0, length, count, docIdsBuffer);
     }
 
     /**
-     * Reads the posting list's ids from the given inverted index file, starting from offset it will read the number
-     * of docIds indicated by the given length parameter.
-     * @param randomAccessFileDocIds RandomAccessFile of the docIds block file
-     * @param offset offset starting from where to read the posting list
-     * @param length length of the posting list to be read
+     * Reads the compressed frequencies of a skip block, starting from the given offset, and decodes them in the
+     * frequencies array of the posting list using the codec of the index.
+     * @param frequenciesFile Mapping of the frequencies file
+     * @param offset offset of the skip block
+     * @param length length of the bytes of the encoded skip block
+     * @param count number of frequencies of the skip block
      */
-    public static ArrayList<Long> readPostingListDocIds(RandomAccessFile randomAccessFileDocIds, long offset, int length) {
-
-        //ArrayList to store the posting list's ids
-        ArrayList<Long> list = new ArrayList<>();
-
-        try {
-
-            //Set the file pointer to the start of the posting list
-            randomAccessFileDocIds.seek(offset);
-
-        } catch (IOException e) {
-            System.err.println("[ReadPostingListDocIds] Exception during seek");
-            throw new RuntimeException(e);
-        }
+    private void readSkipBlockFrequenciesCompressed(MappedFile frequenciesFile, long offset, int length, int count) {
 
-        //Read the docIds from the file
-        for(int i = 0; i < length; i ++) {
-            try {
-
-                //Read the docId and add it to the list
-                list.add(randomAccessFileDocIds.readLong());
-
-            } catch (IOException e) {
-                System.err.println("[ReadPostingListDocIds] Exception during read");
-                throw new RuntimeException(e);
-            }
-        }
+        readCompressedBytes(frequenciesFile, offset, length);
 
-        //Return the list
-        return list;
+        codec.decodeFrequencies(compressedBuffer, 0, length, count, frequenciesBuffer);
     }
 
     /**
-     * Reads the posting list's frequencies from the given inverted index file, starting from offset it will read the
-     * number of frequencies indicated by the given length parameter.
-     * @param randomAccessFileFrequencies RandomAccessFile of the frequencies block file
-     * @param offset offset starting from where to read the posting list
-     * @param length length of the posting list to be read
+     * Copies the given number of bytes from the given mapping, starting from the given offset, in the compressed buffer.
+     * @param file Mapping from which the bytes are read
+     * @param offset offset of the first byte
+     * @param length number of bytes to read
      */
-    public static ArrayList<Integer> readPostingListFrequencies(RandomAccessFile randomAccessFileFrequencies, long offset, int length) {
-
-        //ArrayList to store the posting list's frequencies
-        ArrayList<Integer> list = new ArrayList<>();
+    private void readCompressedBytes(MappedFile file, long offset, int length) {
 
-        try {
-
-            //Set the file pointer to the start of the posting list
-            randomAccessFileFrequencies.seek(offset);
-
-        } catch (IOException e) {
-            System.err.println("[ReadPostingListFrequencies] Exception during seek");
-            throw new RuntimeException(e);
+        if(compressedBuffer.length < length){
+            compressedBuffer = new byte[length];
         }
 
-        //Read the frequencies from the file
-        for(int i = 0; i < length; i ++) {
-            try {
-
-                //Read the frequency and add it to the list
-                list.add(randomAccessFileFrequencies.readInt());
+        file.read(offset, compressedBuffer, 0, length);
+    }
 
-            } catch (IOException e) {
-                System.err.println("[ReadPostingListFrequencies] Exception during read");
-                throw new RuntimeException(e);
-            }
+    /**
+     * Reads the docids of a skip block without compression, starting from the given offset, in the docids array of
+     * the posting list.
+     * @param docIdsFile Mapping of the docIds file
+     * @param offset offset of the skip block
+     * @param count number of docids of the skip block
+     */
+    private void readSkipBlockDocIds(MappedFile docIdsFile, long offset, int count) {
+        for(int i = 0; i < count; i ++) {
+            docIdsBuffer[i] = docIdsFile.getLong(offset + (long) i * Long.BYTES);
         }
-
-        //Return the list
-        return list;
     }
 
     /**
      * Reads the posting list's skip blocks from the given file, starting from offset it will read the
      * number of skip blocks indicated by the given length parameter.
-     * @param randomAccessFileSkipBlocks RandomAccessFile of the skip blocks' file
+     * @param skipBlocksFile Mapping of the skip blocks' file
      * @param offset offset starting from where to read the skip blocks'
      * @param length number of skip blocks to read
      */
-    public static ArrayList<SkipBlock> readPostingListSkipBlocks(RandomAccessFile randomAccessFileSkipBlocks, long offset, int length) {
+    public static ArrayList<SkipBlock> readPostingListSkipBlocks(MappedFile skipBlocksFile, long offset, int length) {
 
-        //ArrayList to store the posting list's frequencies
-        ArrayList<SkipBlock> list = new ArrayList<>();
-
-        try {
-
-            //Set the file pointer to the start of the posting list
-            randomAccessFileSkipBlocks.seek(offset);
-
-        } catch (IOException e) {
-            System.err.println("[ReadPostingListSkipBlocks] Exception during seek");
-            throw new RuntimeException(e);
-        }
+        //ArrayList to store the posting list's skip blocks
+        ArrayList<SkipBlock> list = new ArrayList<>(length);
 
-        //Read the skip blocks from the file
+        //Read the skip blocks from the mapping
         for(int i = 0; i < length; i ++) {
-            try {
-
-                //Read the next skip block from the file and add it to the result list
-                list.add(new SkipBlock(
-                        randomAccessFileSkipBlocks.readLong(), //Docids offset
-                        randomAccessFileSkipBlocks.readInt(),  //Docids length
-                        randomAccessFileSkipBlocks.readLong(), //Frequencies offset
-                        randomAccessFileSkipBlocks.readInt(),  //Frequencies length
-                        randomAccessFileSkipBlocks.readLong()) //Max docid in the skip block
-                );
-
-            } catch (IOException e) {
-                System.err.println("[ReadPostingListSkipBlocks] Exception during read");
-                throw new RuntimeException(e);
-            }
+            list.add(SkipBlock.readFromFile(skipBlocksFile, offset + (long) i * SkipBlock.SKIP_BLOCK_LENGTH));
         }
 
         //Return the list
         return list;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the postings of the current skip block, in the format [[docid, frequency], ...].
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for(int i = 0; i < skipBlockPostings; i++){
+            if(i > 0){
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append('[').append(docIdsBuffer[i]).append(", ").append(frequencyAt(i)).append(']');
+        }
+        return stringBuilder.append(']').toString();
+    }
+}
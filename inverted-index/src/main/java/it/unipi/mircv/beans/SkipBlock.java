@@ -1,8 +1,9 @@
 package it.unipi.mircv.beans;
 
+import it.unipi.mircv.io.BinaryWriter;
+import it.unipi.mircv.io.MappedFile;
+
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 
 /**
  * Class that holds the information about a skip block.
@@ -54,6 +55,26 @@ public class SkipBlock {
         this.maxDocid = maxDocid;
     }
 
+    /**
+     * Compute the number of postings of each skip block of a posting list, except the last one that contains the
+     * remaining postings.
+     * @param postingListLength Number of postings of the posting list
+     * @param skipBlockSize Fixed number of postings of each skip block, 0 to use sqrt(postingListLength)
+     * @return the number of postings of each skip block.
+     */
+    public static int postingsPerSkipBlock(int postingListLength, int skipBlockSize) {
+        if(skipBlockSize > 0){
+            return skipBlockSize;
+        }
+        return (int) Math.floor(Math.sqrt(postingListLength));
+    }
+
+    public void setDocIdInfo(long startDocidOffset, int skipBlockDocidLength, long maxDocid) {
+        this.startDocidOffset = startDocidOffset;
+        this.skipBlockDocidLength = skipBlockDocidLength;
+        this.maxDocid = maxDocid;
+    }
+
     public void setFreqInfo(long startFreqOffset, int skipBlockFreqLength) {
         this.startFreqOffset = startFreqOffset;
         this.skipBlockFreqLength = skipBlockFreqLength;
@@ -62,25 +83,40 @@ public class SkipBlock {
     /**
      * Write the term info to a file. This method is used during the merge of the partial blocks, here we have
      * all the information directly inside the termInfo object.
-     * @param skipBlocksFile Is the random access file on which the term info is written.
+     * @param skipBlocksFile Is the buffered writer of the file on which the skip block is written.
      */
-    public void writeToFile(RandomAccessFile skipBlocksFile){
-        byte[] startDocIdOffset = ByteBuffer.allocate(OFFSET_LENGTH).putLong(this.startDocidOffset).array();
-        byte[] skipBlockDocIdLength = ByteBuffer.allocate(SKIP_BLOCK_DIMENSION_LENGTH).putInt(this.skipBlockDocidLength).array();
-        byte[] startFreqOffset = ByteBuffer.allocate(OFFSET_LENGTH).putLong(this.startFreqOffset).array();
-        byte[] skipBlockFreqLength = ByteBuffer.allocate(SKIP_BLOCK_DIMENSION_LENGTH).putInt(this.skipBlockFreqLength).array();
-        byte[] maxDocId = ByteBuffer.allocate(MAX_DOC_ID_LENGTH).putLong(this.maxDocid).array();
+    public void writeToFile(BinaryWriter skipBlocksFile){
         try {
-            skipBlocksFile.write(startDocIdOffset);
-            skipBlocksFile.write(skipBlockDocIdLength);
-            skipBlocksFile.write(startFreqOffset);
-            skipBlocksFile.write(skipBlockFreqLength);
-            skipBlocksFile.write(maxDocId);
+            skipBlocksFile.writeLong(this.startDocidOffset);
+            skipBlocksFile.writeInt(this.skipBlockDocidLength);
+            skipBlocksFile.writeLong(this.startFreqOffset);
+            skipBlocksFile.writeInt(this.skipBlockFreqLength);
+            skipBlocksFile.writeLong(this.maxDocid);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Read a skip block written by writeToFile from the mapping of the skip blocks file.
+     * @param skipBlocksFile Mapping of the skip blocks file
+     * @param position Position of the skip block in the file
+     * @return the skip block read.
+     */
+    public static SkipBlock readFromFile(MappedFile skipBlocksFile, long position){
+        long startDocidOffset = skipBlocksFile.getLong(position);
+        position += OFFSET_LENGTH;
+        int skipBlockDocidLength = skipBlocksFile.getInt(position);
+        position += SKIP_BLOCK_DIMENSION_LENGTH;
+        long startFreqOffset = skipBlocksFile.getLong(position);
+        position += OFFSET_LENGTH;
+        int skipBlockFreqLength = skipBlocksFile.getInt(position);
+        position += SKIP_BLOCK_DIMENSION_LENGTH;
+        long maxDocid = skipBlocksFile.getLong(position);
+
+        return new SkipBlock(startDocidOffset, skipBlockDocidLength, startFreqOffset, skipBlockFreqLength, maxDocid);
+    }
+
     @Override
     public String toString() {
         return "startDocidOffset=" + startDocidOffset +
@@ -18,6 +18,18 @@ public class Statistics {
                 '}';
     }
 
+    /**
+     * Constructor of the statistics of a collection not read from the statistics file.
+     * @param numberOfBlocks Number of blocks written
+     * @param numberOfDocuments Number of documents of the collection
+     * @param avdl Average length of the documents
+     */
+    public Statistics(int numberOfBlocks, int numberOfDocuments, int avdl) {
+        this.numberOfBlocks = numberOfBlocks;
+        this.numberOfDocuments = numberOfDocuments;
+        this.avdl = avdl;
+    }
+
     public Statistics() {
         try {
             //creates a new file instance
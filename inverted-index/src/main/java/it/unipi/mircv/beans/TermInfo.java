@@ -1,10 +1,9 @@
 package it.unipi.mircv.beans;
 
+import it.unipi.mircv.io.BinaryWriter;
 import it.unipi.mircv.utils.Utils;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 
 public class TermInfo {
 
@@ -45,6 +44,10 @@ public class TermInfo {
 
     public final static int MAXSCORE_LENGTH = 4;
 
+    //Length in bytes of an entry of the lexicon of a partial block: term, offsets and posting list length, lengths in bytes
+    // of the compressed docids and frequencies
+    public final static int BLOCK_TERM_INFO_LENGTH = TERM_LENGTH + OFFSET_DOCIDS_LENGTH + OFFSET_FREQUENCIES_LENGTH + POSTING_LIST_LENGTH + BYTES_DOCID_LENGTH + BYTES_FREQUENCY_LENGTH;
+
     public final static int TERM_INFO_LENGTH = TERM_LENGTH + OFFSET_DOCIDS_LENGTH + OFFSET_SKIPBLOCKS_LENGTH +NUMBER_OF_SKIPBLOCKS_LENGTH + OFFSET_FREQUENCIES_LENGTH + BYTES_DOCID_LENGTH + BYTES_FREQUENCY_LENGTH + POSTING_LIST_LENGTH + IDF_LENGTH + MAXSCORE_LENGTH + MAXSCORE_LENGTH;
 
     public TermInfo(String term, long offsetDocId, long offsetFrequency, double idf, int docIdsBytesLength, int frequenciesBytesLength, int postingListLength, long offsetSkipBlock, int numberOfSkipBlocks, int tfidfTermUpperBound, int bm25TermUpperBound) {
@@ -68,6 +71,12 @@ public class TermInfo {
         this.postingListLength = postingListLength;
     }
 
+    public TermInfo(String term, long offsetDocId, long offsetFrequency, int postingListLength, int docIdsBytesLength, int frequenciesBytesLength) {
+        this(term, offsetDocId, offsetFrequency, postingListLength);
+        this.docIdsBytesLength = docIdsBytesLength;
+        this.frequenciesBytesLength = frequenciesBytesLength;
+    }
+
     public TermInfo() {
         this.offsetDocId = 0;
         this.offsetFrequency = 0;
@@ -130,33 +139,33 @@ public class TermInfo {
         return bm25TermUpperBound;
     }
 
-    public void set(int offsetDocId, int offsetFrequency, int postingListLength){
-        this.setOffsetDocId(offsetDocId);
-        this.setOffsetFrequency(offsetFrequency);
-        this.setPostingListLength(postingListLength);
+    public void set(long offsetDocId, long offsetFrequency, int postingListLength, int docIdsBytesLength, int frequenciesBytesLength){
+        this.offsetDocId = offsetDocId;
+        this.offsetFrequency = offsetFrequency;
+        this.postingListLength = postingListLength;
+        this.docIdsBytesLength = docIdsBytesLength;
+        this.frequenciesBytesLength = frequenciesBytesLength;
     }
 
     /**
-     * Write the term info to a file. This method is used during the building of the partial blocks.
-     * @param lexiconFile Is the random access file on which the term info is written.
+     * Write the term info to a file. This method is used during the building of the partial blocks, the posting lists
+     * of the blocks are compressed so also the lengths in bytes of the docids and frequencies are written.
+     * @param lexiconFile Is the buffered writer of the file on which the term info is written.
      * @param key Term to be written.
      * @param termInfo Information of the term to be written.
      */
-    public void writeToFile(RandomAccessFile lexiconFile, String key, TermInfo termInfo){
+    public void writeToFile(BinaryWriter lexiconFile, String key, TermInfo termInfo){
 
         //Fill with whitespaces to keep the length standard
         String tmp = Utils.leftpad(key, TERM_LENGTH);
 
-        byte[] term = ByteBuffer.allocate(TERM_LENGTH).put(tmp.getBytes()).array();
-        byte[] offsetDocId = ByteBuffer.allocate(OFFSET_DOCIDS_LENGTH).putLong(termInfo.getOffsetDocId()).array();
-        byte[] offsetFrequency = ByteBuffer.allocate(OFFSET_FREQUENCIES_LENGTH).putLong(termInfo.getOffsetFrequency()).array();
-        byte[] postingListLength = ByteBuffer.allocate(POSTING_LIST_LENGTH).putInt(termInfo.getPostingListLength()).array();
-
         try {
-            lexiconFile.write(term);
-            lexiconFile.write(offsetDocId);
-            lexiconFile.write(offsetFrequency);
-            lexiconFile.write(postingListLength);
+            lexiconFile.writeFixedLength(tmp.getBytes(), TERM_LENGTH);
+            lexiconFile.writeLong(termInfo.getOffsetDocId());
+            lexiconFile.writeLong(termInfo.getOffsetFrequency());
+            lexiconFile.writeInt(termInfo.getPostingListLength());
+            lexiconFile.writeInt(termInfo.getDocIdsBytesLength());
+            lexiconFile.writeInt(termInfo.getFrequenciesBytesLength());
 
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -166,37 +175,25 @@ public class TermInfo {
     /**
      * Write the term info to a file. This method is used during the merge of the partial blocks, here we have
      * all the information directly inside the termInfo object.
-     * @param lexiconFile Is the random access file on which the term info is written.
+     * @param lexiconFile Is the buffered writer of the file on which the term info is written.
      * @param termInfo Information of the term to be written.
      */
-    public void writeToFile(RandomAccessFile lexiconFile, TermInfo termInfo){
+    public void writeToFile(BinaryWriter lexiconFile, TermInfo termInfo){
         //Fill with whitespaces to keep the length standard
         String tmp = Utils.leftpad(termInfo.getTerm(), TERM_LENGTH);
 
-        byte[] term = ByteBuffer.allocate(TERM_LENGTH).put(tmp.getBytes()).array();
-        byte[] offsetDocId = ByteBuffer.allocate(OFFSET_DOCIDS_LENGTH).putLong(termInfo.getOffsetDocId()).array();
-        byte[] offsetFrequency = ByteBuffer.allocate(OFFSET_FREQUENCIES_LENGTH).putLong(termInfo.getOffsetFrequency()).array();
-        byte[] bytesDocId = ByteBuffer.allocate(BYTES_DOCID_LENGTH).putInt(termInfo.getDocIdsBytesLength()).array();
-        byte[] bytesFrequency = ByteBuffer.allocate(BYTES_FREQUENCY_LENGTH).putInt(termInfo.getFrequenciesBytesLength()).array();
-        byte[] postingListLength = ByteBuffer.allocate(POSTING_LIST_LENGTH).putInt(termInfo.getPostingListLength()).array();
-        byte[] idf = ByteBuffer.allocate(IDF_LENGTH).putDouble(termInfo.getIdf()).array();
-        byte[] offsetSkipBlocks = ByteBuffer.allocate(OFFSET_SKIPBLOCKS_LENGTH).putLong(termInfo.getOffsetSkipBlock()).array();
-        byte[] numberOfSkipBlocks = ByteBuffer.allocate(NUMBER_OF_SKIPBLOCKS_LENGTH).putInt(termInfo.getNumberOfSkipBlocks()).array();
-        byte[] tfidfTermUpperBound = ByteBuffer.allocate(MAXSCORE_LENGTH).putInt(termInfo.getTfidfTermUpperBound()).array();
-        byte[] bm25TermUpperBound = ByteBuffer.allocate(MAXSCORE_LENGTH).putInt(termInfo.getBm25TermUpperBound()).array();
-
         try {
-            lexiconFile.write(term);
-            lexiconFile.write(offsetDocId);
-            lexiconFile.write(offsetFrequency);
-            lexiconFile.write(idf);
-            lexiconFile.write(bytesDocId);
-            lexiconFile.write(bytesFrequency);
-            lexiconFile.write(postingListLength);
-            lexiconFile.write(offsetSkipBlocks);
-            lexiconFile.write(numberOfSkipBlocks);
-            lexiconFile.write(tfidfTermUpperBound);
-            lexiconFile.write(bm25TermUpperBound);
+            lexiconFile.writeFixedLength(tmp.getBytes(), TERM_LENGTH);
+            lexiconFile.writeLong(termInfo.getOffsetDocId());
+            lexiconFile.writeLong(termInfo.getOffsetFrequency());
+            lexiconFile.writeDouble(termInfo.getIdf());
+            lexiconFile.writeInt(termInfo.getDocIdsBytesLength());
+            lexiconFile.writeInt(termInfo.getFrequenciesBytesLength());
+            lexiconFile.writeInt(termInfo.getPostingListLength());
+            lexiconFile.writeLong(termInfo.getOffsetSkipBlock());
+            lexiconFile.writeInt(termInfo.getNumberOfSkipBlocks());
+            lexiconFile.writeInt(termInfo.getTfidfTermUpperBound());
+            lexiconFile.writeInt(termInfo.getBm25TermUpperBound());
 
         } catch (IOException e) {
             throw new RuntimeException(e);
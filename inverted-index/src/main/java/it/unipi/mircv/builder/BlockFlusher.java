@@ -0,0 +1,78 @@
+package it.unipi.mircv.builder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Writes the full blocks to disk in a background thread, so the parsing can continue in a new builder while the
+ * previous block is sorted and written (double buffering). Only one block at a time can be waiting to be written:
+ * if the flusher falls behind, the submission of the next block waits for the previous one to be completed.
+ */
+public class BlockFlusher implements AutoCloseable {
+
+    //Thread writing the blocks
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    //Action that sorts and writes a block, given the builder and the number of the block
+    private final ObjIntConsumer<InvertedIndexBuilder> flushAction;
+
+    //Result of the block currently being written, null if no block was submitted
+    private Future<?> pendingFlush;
+
+    /**
+     * Constructor of the class.
+     * @param flushAction Action that sorts and writes a block, given the builder and the number of the block
+     */
+    public BlockFlusher(ObjIntConsumer<InvertedIndexBuilder> flushAction) {
+        this.flushAction = flushAction;
+    }
+
+    /**
+     * Submit a full block to be written in background. It waits for the completion of the previous block, so at most
+     * two blocks are kept in memory: the one being written and the one being built.
+     * @param invertedIndexBuilder Builder containing the block, it must not be used after the submission
+     * @param blockNumber Number of the block
+     */
+    public void submit(InvertedIndexBuilder invertedIndexBuilder, int blockNumber){
+
+        //Apply the backpressure on the parsing
+        waitPendingFlush();
+
+        pendingFlush = executor.submit(() -> flushAction.accept(invertedIndexBuilder, blockNumber));
+    }
+
+    /**
+     * Wait for the completion of the block currently being written, if any, propagating its exceptions.
+     */
+    public void waitPendingFlush(){
+        if(pendingFlush == null){
+            return;
+        }
+
+        try {
+            pendingFlush.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pendingFlush = null;
+        }
+    }
+
+    /**
+     * Wait for the last block to be written, then stop the background thread.
+     */
+    @Override
+    public void close() {
+        try {
+            waitPendingFlush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package it.unipi.mircv.builder;
+
+/**
+ * Small open addressing hash table (linear probing) used to count the occurrences of each distinct term inside a
+ * document. It is reused for every document: the clear operation only resets the slots used by the last document.
+ */
+public class DocumentTermCounter {
+
+    //Initial number of slots, must be a power of 2
+    private static final int INITIAL_CAPACITY = 256;
+
+    //Terms stored in the slots, null if the slot is empty
+    private String[] keys;
+
+    //Number of occurrences of the term in each slot
+    private int[] counts;
+
+    //Slots used, in order of first occurrence of the term in the document
+    private int[] usedSlots;
+
+    //Number of distinct terms
+    private int size;
+
+    /**
+     * Constructor of the class.
+     */
+    public DocumentTermCounter() {
+        keys = new String[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+        usedSlots = new int[INITIAL_CAPACITY / 2];
+        size = 0;
+    }
+
+    /**
+     * Add an occurrence of the given term.
+     * @param term Term to be counted
+     */
+    public void add(String term){
+
+        int mask = keys.length - 1;
+
+        //Spread the hash code, the String caches it so it is computed once per string
+        int hash = term.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        //Linear probing until the term or an empty slot is found
+        while(keys[slot] != null){
+            if(keys[slot].equals(term)){
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = term;
+        counts[slot] = 1;
+        usedSlots[size++] = slot;
+
+        //Keep the load factor under 0.5 to have short probe sequences
+        if(size == usedSlots.length){
+            grow();
+        }
+    }
+
+    /**
+     * Get the number of distinct terms counted.
+     * @return the number of distinct terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the i-th distinct term, in order of first occurrence.
+     * @param i index of the term
+     * @return the term.
+     */
+    public String getTerm(int i) {
+        return keys[usedSlots[i]];
+    }
+
+    /**
+     * Get the number of occurrences of the i-th distinct term, in order of first occurrence.
+     * @param i index of the term
+     * @return the number of occurrences of the term.
+     */
+    public int getCount(int i) {
+        return counts[usedSlots[i]];
+    }
+
+    /**
+     * Remove all the terms, resetting only the slots used.
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            keys[usedSlots[i]] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Double the number of slots and reinsert the terms.
+     */
+    private void grow(){
+        String[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int[] oldUsedSlots = usedSlots;
+
+        keys = new String[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        usedSlots = new int[oldUsedSlots.length * 2];
+
+        int mask = keys.length - 1;
+
+        //Reinsert the terms keeping their order
+        for(int i = 0; i < size; i++){
+            String term = oldKeys[oldUsedSlots[i]];
+            int hash = term.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+
+            while(keys[slot] != null){
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = term;
+            counts[slot] = oldCounts[oldUsedSlots[i]];
+            usedSlots[i] = slot;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("{");
+        for(int i = 0; i < size; i++){
+            if(i > 0){
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(getTerm(i)).append('=').append(getCount(i));
+        }
+        return stringBuilder.append('}').toString();
+    }
+}
@@ -1,15 +1,13 @@
 package it.unipi.mircv.builder;
 
 import it.unipi.mircv.beans.ParsedDocument;
-import it.unipi.mircv.beans.Posting;
 import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.io.BinaryWriter;
+
+import static it.unipi.mircv.compressor.Compressor.variableByteEncodeNumber;
+
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Represent a component that gives the methods to build the lexicon and the inverted index for each block.
@@ -20,7 +18,20 @@ public class InvertedIndexBuilder {
     // value[0] -> TermId
     // value[1] -> offset in the posting list
     HashMap<String, TermInfo> lexicon;
-    HashMap<String, ArrayList<Posting>> invertedIndex;
+    HashMap<String, TermPostings> invertedIndex;
+
+    //Table used to count the occurrences of the terms of the document being inserted, reused for each document
+    private final DocumentTermCounter documentTermCounter = new DocumentTermCounter();
+
+    //Estimated size in bytes of the entries of a new term in the two HashMaps (entry object and table slot) and of its
+    // TermInfo object, the string and the posting list are accounted separately
+    private static final int TERM_FOOTPRINT = 2 * (32 + 8) + 80;
+
+    //Estimated size in bytes of a String object without its characters
+    private static final int STRING_FOOTPRINT = 40;
+
+    //Estimated size in bytes of the data structures of the block
+    private long memoryFootprint;
 
     /**
      * Constructor of the class.
@@ -34,65 +45,46 @@ public class InvertedIndexBuilder {
     }
 
     /**
-     * Insert the document's tokens inside the lexicon and the inverted index, it's an implementation of SPIMI
+     * Insert the document's tokens inside the lexicon and the inverted index, it's an implementation of SPIMI.
+     * The occurrences of the terms are first counted inside the document, then each distinct term requires a single
+     * lookup in the dictionary and a single posting append.
      * @param parsedDocument Contains the id of the document, its length and the list of tokens
      */
     public void insertDocument(ParsedDocument parsedDocument) {
 
-        //long begin = System.currentTimeMillis();
-        //Generate a stream of String
-        Stream.of(parsedDocument.getTerms())
-                .forEach((term) -> {
-                    //If the term is already present in the lexicon
-                    if(lexicon.containsKey(term)){
-
-                        //Retrieve the posting list of the term accessing the first element of the array of int that is
-                        // the value of the termID in the lexicon
-                        ArrayList<Posting> termPostingList = invertedIndex.get(term);
-
-                        //Flag to set if the doc id's posting is present in the posting list of the term
-                        boolean found = false;
-
-                        //Iterate through the posting
-                        for(Posting p : termPostingList){
-
-                            //If the doc id is present, increment the frequency and terminate the loop
-                            if(p.getDocId() == parsedDocument.getDocId()){
-
-                                //Increment the frequency of the doc id
-                                p.incrementFrequency();
-
-                                found = true;
-                                break;
-                            }
-                        }
-
-                        //If the posting of the document is not present in the posting list, it must be added
-                        if(!found){
-
-                            //Posting added to the posting list of the term
-                            termPostingList.add(new Posting(parsedDocument.getDocId(), 1));
-                        }
-                    }
-                    //If the term was not present in the lexicon
-                    else{
-                        //Insert a new element in the lexicon, in each block the currTermID corresponds to the id
-                        // associated to the term, but also to the position in the inverted index!
-                        // To access the posting list of that term we can just retrieve the currTermId and access the
-                        // array of posting lists
-                        lexicon.put(term, new TermInfo() );
-
-                        //Insert a new posting list in the inverted index
-                        ArrayList<Posting> postingsList = new ArrayList<>();
-                        Posting posting = new Posting(parsedDocument.getDocId(), 1);
-                        postingsList.add(posting);
-
-                        //Insert the new posting list
-                        invertedIndex.put(term, postingsList);
-
-                    }
-                });
-        //System.out.println("[DEBUG: INSERT DOCUMENT] " + (System.currentTimeMillis() - begin) + "ms");
+        long docId = parsedDocument.getDocId();
+
+        //Collapse the document into (term, tf) pairs
+        documentTermCounter.clear();
+        for(String term : parsedDocument.getTerms()){
+            documentTermCounter.add(term);
+        }
+
+        for(int i = 0; i < documentTermCounter.size(); i++){
+
+            String term = documentTermCounter.getTerm(i);
+
+            //Retrieve the posting list of the term
+            TermPostings termPostingList = invertedIndex.get(term);
+
+            //If the term was not present in the lexicon
+            if(termPostingList == null){
+
+                //Insert a new element in the lexicon
+                lexicon.put(term, new TermInfo());
+
+                //Insert the new posting list in the inverted index
+                termPostingList = new TermPostings();
+                invertedIndex.put(term, termPostingList);
+
+                //Account the memory used by the new term, the characters are counted as 2 bytes each
+                memoryFootprint += TERM_FOOTPRINT + STRING_FOOTPRINT + 2L * term.length() + TermPostings.INITIAL_FOOTPRINT;
+            }
+
+            //The documents are inserted in increasing order of docid, so the posting of the document is appended at
+            // the end of the posting list in O(1)
+            memoryFootprint += termPostingList.add(docId, documentTermCounter.getCount(i));
+        }
     }
 
     /**
@@ -115,106 +107,80 @@ public class InvertedIndexBuilder {
     public void clear(){
         clearLexicon();
         clearInvertedIndex();
-
-        //Call the garbage collector to thrash the data structures cleared above, if it is not done the memory will be
-        // over the threshold until the gc will be called automatically, causing the writes of a block at every document
-        // processed after the trespassing of the threshold.
-        Runtime.getRuntime().gc();
+        memoryFootprint = 0;
     }
 
     /**
-     * Sort the lexicon with complexity O(nlog(n)) where n is the # of elements in the lexicon.
-     */
-    public void sortLexicon(){
-
-        //To not double the memory instantiating a new data structure we've decided to use the following sorting
-        lexicon = lexicon.entrySet()
-                         .stream()
-                         .sorted(Map.Entry.comparingByKey())
-                         .collect(Collectors.toMap(
-                                Map.Entry::getKey,
-                                Map.Entry::getValue,
-                                (e1, e2) -> e1, LinkedHashMap::new)); //LinkedHashMap to keep O(1) time complexity
-
-    }
-    /**
-     * Sort the inverted index with complexity O(nlog(n)) where n is the # of elements in the inverted index.
+     * Get the estimated size in bytes of the lexicon and the inverted index of the current block, it is computed
+     * accounting the memory allocated for each term and for the growth of the posting lists, so it depends only on the
+     * documents inserted.
+     * @return the estimated memory footprint of the block in bytes.
      */
-    public void sortInvertedIndex(){
-
-        invertedIndex = invertedIndex.entrySet()
-                                     .stream()
-                                     .sorted(Map.Entry.comparingByKey())
-                                     .collect(Collectors.toMap(
-                                            Map.Entry::getKey,
-                                            Map.Entry::getValue,
-                                            (e1, e2) -> e1, LinkedHashMap::new));
-
+    public long getMemoryFootprint() {
+        return memoryFootprint;
     }
 
     /**
-     * Writes the current lexicon into a file
-     * @param outputPath path of the file that will contain the block's lexicon
+     * Get the terms of the block in lexicographic order. The distinct terms are sorted once in O(nlog(n)) where n is
+     * the # of terms; the sort is parallel on large blocks, while on small ones it falls back to the sequential one.
+     * @return the array of the sorted terms.
      */
-    public void writeLexiconToFile(String outputPath){
-
-        try (RandomAccessFile randomAccessFile = new RandomAccessFile(outputPath, "rw")){
-
-            //Write each lexicon entry in the lexicon in the output file
-            lexicon.forEach( (key, termInfo) -> termInfo.writeToFile(randomAccessFile, key, termInfo));
-
-        }catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private String[] sortTerms(){
+        String[] terms = invertedIndex.keySet().toArray(new String[0]);
+        Arrays.parallelSort(terms);
+        return terms;
     }
 
     /**
-     * Writes the current inverted index in the disk, the inverted index is written in two different files:
-     * The file containing the document ids of each posting list
+     * Writes the current block in the disk, visiting the terms in lexicographic order. The inverted index is written in
+     * two different files, both compressed with the Variable Byte Encoding:
+     * The file containing the document ids of each posting list, encoded as gaps from the previous docid of the list
      * The file containing the frequencies of the terms in the documents
-     * Then update the information in the lexicon
+     * The lexicon entry of each term is updated and written together with its posting list, so no sorted copy of the
+     * data structures is built.
+     * @param outputPathLexicon path of the file that will contain the block's lexicon
      * @param outputPathDocIds path of the file that will contain the document ids
      * @param outputPathFrequencies path of the file that will contain the frequencies
      */
-    public void writeInvertedIndexToFile(String outputPathDocIds, String outputPathFrequencies){
+    public void writeBlockToFiles(String outputPathLexicon, String outputPathDocIds, String outputPathFrequencies){
 
         //Create resources with try-catch with resources
-        try (RandomAccessFile docIdBlock = new RandomAccessFile(outputPathDocIds, "rw");
-             RandomAccessFile frequencyBlock = new RandomAccessFile(outputPathFrequencies, "rw"))
+        try (BinaryWriter lexiconBlock = new BinaryWriter(outputPathLexicon);
+             BinaryWriter docIdBlock = new BinaryWriter(outputPathDocIds);
+             BinaryWriter frequencyBlock = new BinaryWriter(outputPathFrequencies))
         {
 
-            AtomicInteger currentOffsetDocId = new AtomicInteger(0);
-            AtomicInteger currentOffsetFrequency = new AtomicInteger(0);
-
+            //for each term of the block, in lexicographic order
+            for(String term : sortTerms()) {
 
-            //for each element of the inverted index
-            invertedIndex.forEach((term, postingList) -> {
+                TermPostings postingList = invertedIndex.get(term);
 
                 //Set the current offsets to be written in the lexicon
-                int offsetDocId = currentOffsetDocId.get();
-                int offsetFrequency = currentOffsetFrequency.get();
-
-                postingList.forEach(posting -> {
-                    //Create the buffers for each element to be written
-                    byte[] postingDocId = ByteBuffer.allocate(8).putLong(posting.getDocId()).array();
-                    byte[] postingFreq = ByteBuffer.allocate(4).putInt(posting.getFrequency()).array();
-
-                    try {
-                        //Append each element to the file, each one adds 4 bytes to the file
-                        docIdBlock.write(postingDocId);
-                        frequencyBlock.write(postingFreq);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-
-                    //Increment the current offset
-                    currentOffsetDocId.addAndGet(8);
-                    currentOffsetFrequency.addAndGet(4);
-                });
-
-                //Set the docId offset, the frequency offset, the posting list length of the term in the lexicon
-                lexicon.get(term).set(offsetDocId, offsetFrequency, postingList.size());
-            });
+                long offsetDocId = docIdBlock.getPosition();
+                long offsetFrequency = frequencyBlock.getPosition();
+
+                //Lengths in bytes of the compressed docids and frequencies
+                int docIdsBytesLength = 0;
+                int frequenciesBytesLength = 0;
+
+                //The first docid is encoded as the gap from 0
+                long previousDocId = 0;
+
+                for(int i = 0; i < postingList.size(); i++) {
+                    //Append the code of each element to the buffers of the files
+                    docIdsBytesLength += variableByteEncodeNumber(postingList.getDocId(i) - previousDocId, docIdBlock);
+                    frequenciesBytesLength += variableByteEncodeNumber(postingList.getFrequency(i), frequencyBlock);
+
+                    previousDocId = postingList.getDocId(i);
+                }
+
+                //Set the offsets, the posting list length and the lengths in bytes of the term in the lexicon
+                TermInfo termInfo = lexicon.get(term);
+                termInfo.set(offsetDocId, offsetFrequency, postingList.size(), docIdsBytesLength, frequenciesBytesLength);
+
+                //Write the lexicon entry of the term in the lexicon file
+                termInfo.writeToFile(lexiconBlock, term, termInfo);
+            }
         }catch (IOException e) {
             System.err.println("Exception during file creation of block");
             throw new RuntimeException(e);
@@ -225,7 +191,7 @@ public class InvertedIndexBuilder {
         return lexicon;
     }
 
-    public HashMap<String, ArrayList<Posting>> getInvertedIndex() {
+    public HashMap<String, TermPostings> getInvertedIndex() {
         return invertedIndex;
     }
 
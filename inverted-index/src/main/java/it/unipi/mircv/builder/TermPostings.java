@@ -0,0 +1,104 @@
+package it.unipi.mircv.builder;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of a term in the block that is being built. The docids and the frequencies are kept in two growable
+ * arrays of primitives; since the documents are inserted in increasing order of docid, only the last posting can
+ * refer to the current document, so each posting is added in constant time.
+ */
+public class TermPostings {
+
+    //Initial capacity of the arrays, most of the terms appear in few documents
+    private static final int INITIAL_CAPACITY = 4;
+
+    //Estimated size in bytes of a new instance: object header and fields, the two arrays with their headers
+    static final int INITIAL_FOOTPRINT = 32 + (16 + INITIAL_CAPACITY * Long.BYTES) + (16 + INITIAL_CAPACITY * Integer.BYTES);
+
+    //Docids of the postings, in increasing order
+    private long[] docIds;
+
+    //Frequencies of the postings
+    private int[] frequencies;
+
+    //Number of postings
+    private int size;
+
+    /**
+     * Constructor of the class.
+     */
+    public TermPostings() {
+        docIds = new long[INITIAL_CAPACITY];
+        frequencies = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Add the given number of occurrences of the term in the given document: if the last posting refers to the
+     * document its frequency is increased, otherwise a new posting is appended.
+     * @param docId Docid of the document, must be greater or equal to the last docid inserted
+     * @param frequency Number of occurrences of the term in the document
+     * @return the number of bytes allocated to grow the arrays, 0 if they were not full
+     */
+    public int add(long docId, int frequency){
+
+        if(size > 0 && docIds[size - 1] == docId){
+            frequencies[size - 1] += frequency;
+            return 0;
+        }
+
+        //Bytes allocated for the new postings
+        int allocated = 0;
+
+        //Double the capacity if the arrays are full
+        if(size == docIds.length){
+            docIds = Arrays.copyOf(docIds, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+            allocated = size * (Long.BYTES + Integer.BYTES);
+        }
+
+        docIds[size] = docId;
+        frequencies[size] = frequency;
+        size++;
+
+        return allocated;
+    }
+
+    /**
+     * Get the number of postings.
+     * @return the number of postings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the docid of the i-th posting.
+     * @param i index of the posting
+     * @return the docid of the posting.
+     */
+    public long getDocId(int i) {
+        return docIds[i];
+    }
+
+    /**
+     * Get the frequency of the i-th posting.
+     * @param i index of the posting
+     * @return the frequency of the posting.
+     */
+    public int getFrequency(int i) {
+        return frequencies[i];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder("[");
+        for(int i = 0; i < size; i++){
+            if(i > 0){
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append('[').append(docIds[i]).append(", ").append(frequencies[i]).append(']');
+        }
+        return stringBuilder.append(']').toString();
+    }
+}
@@ -0,0 +1,83 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Codec of the indexes whose skip blocks have a fixed number of postings: the docids are encoded by another codec,
+ * while the frequencies of each skip block are bit packed with the minimum number of bits. Since the frequencies are
+ * at least 1, each frequency is stored as frequency - 1, after one byte containing the number of bits; a skip block in
+ * which all the frequencies are 1 takes a single byte.
+ */
+public class BitPackedFrequencyCodec implements PostingCodec {
+
+    //Codec used for the docids
+    private final PostingCodec docIdsCodec;
+
+    //Frequencies of the skip block being encoded or decoded, reused between the calls
+    private long[] values = new long[0];
+
+    /**
+     * Constructor of the class.
+     * @param docIdsCodec Codec used for the docids
+     */
+    public BitPackedFrequencyCodec(PostingCodec docIdsCodec) {
+        this.docIdsCodec = docIdsCodec;
+    }
+
+    @Override
+    public String getName() {
+        return docIdsCodec.getName();
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        //The frequencies take at most 31 bits each, plus the byte with the number of bits
+        return Math.max(docIdsCodec.maxEncodedLength(count), 1 + Integer.BYTES * count);
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+        return docIdsCodec.encodeDocIds(docIds, count, output, offset);
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        long max = 0;
+        for(int i = 0; i < count; i++){
+            values[i] = frequencies[i] - 1;
+            max |= values[i];
+        }
+
+        int bits = BitPacking.bitWidth(max);
+        output[offset++] = (byte) bits;
+
+        return BitPacking.pack(values, 0, count, bits, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+        docIdsCodec.decodeDocIds(input, offset, length, count, output);
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        ensureCapacity(count);
+
+        int bits = input[offset++];
+        BitPacking.unpack(input, offset, bits, values, 0, count);
+
+        for(int i = 0; i < count; i++){
+            output[i] = (int) values[i] + 1;
+        }
+    }
+
+    /**
+     * Make sure that the values array can contain the given number of values.
+     * @param count Number of values
+     */
+    private void ensureCapacity(int count) {
+        if(values.length < count){
+            values = new long[count];
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package it.unipi.mircv.compressor;
+
+import java.util.Arrays;
+
+/**
+ * Helper methods to write and read values with a fixed number of bits in an array of bytes. The bits are stored from
+ * the least significant bit of each byte, and the least significant bits of a value come first.
+ */
+final class BitPacking {
+
+    private BitPacking() {
+    }
+
+    /**
+     * Compute the number of bits needed to represent the given value.
+     * @param value Value, must be greater or equal to 0
+     * @return the number of bits, 0 for the value 0.
+     */
+    static int bitWidth(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * Compute the number of bytes needed to store the given number of bits.
+     * @param bits Number of bits
+     * @return the number of bytes.
+     */
+    static int bytesFor(long bits) {
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    /**
+     * Write the lowest bits of the given values, one after the other.
+     * @param values Array containing the values
+     * @param from Index of the first value
+     * @param count Number of values
+     * @param bits Number of bits of each value, between 0 and 64
+     * @param output Array in which the values are written
+     * @param offset Position of the array from which the values are written
+     * @return Position of the array after the values
+     */
+    static int pack(long[] values, int from, int count, int bits, byte[] output, int offset) {
+
+        int end = offset + bytesFor((long) count * bits);
+        Arrays.fill(output, offset, end, (byte) 0);
+
+        long bitPosition = (long) offset << 3;
+        for(int i = from; i < from + count; i++){
+            long value = values[i];
+            int remaining = bits;
+
+            //Write the value one byte at a time, the first byte can be partially occupied by the previous value
+            while(remaining > 0){
+                int index = (int) (bitPosition >>> 3);
+                int shift = (int) (bitPosition & 7);
+                int take = Math.min(8 - shift, remaining);
+
+                output[index] |= (byte) ((value & ((1L << take) - 1)) << shift);
+
+                value >>>= take;
+                remaining -= take;
+                bitPosition += take;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Read values written by pack.
+     * @param input Array containing the values
+     * @param offset Position of the array of the first value
+     * @param bits Number of bits of each value, between 0 and 64
+     * @param output Array in which the values are written
+     * @param from Index of the output array of the first value
+     * @param count Number of values
+     * @return Position of the array after the values
+     */
+    static int unpack(byte[] input, int offset, int bits, long[] output, int from, int count) {
+
+        long bitPosition = (long) offset << 3;
+        for(int i = from; i < from + count; i++){
+            long value = 0;
+            int read = 0;
+
+            while(read < bits){
+                int index = (int) (bitPosition >>> 3);
+                int shift = (int) (bitPosition & 7);
+                int take = Math.min(8 - shift, bits - read);
+
+                value |= ((long) ((input[index] & 0xFF) >>> shift) & ((1L << take) - 1)) << read;
+
+                read += take;
+                bitPosition += take;
+            }
+
+            output[i] = value;
+        }
+
+        return offset + bytesFor((long) count * bits);
+    }
+}
@@ -1,15 +1,9 @@
 package it.unipi.mircv.compressor;
-import it.unipi.mircv.beans.DocumentIndexEntry;
-import it.unipi.mircv.beans.SkipBlock;
-import it.unipi.mircv.beans.Statistics;
-import it.unipi.mircv.beans.Tuple;
+import it.unipi.mircv.io.BinaryWriter;
 
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 
-import static it.unipi.mircv.merger.IndexMerger.B;
-import static it.unipi.mircv.merger.IndexMerger.K1;
 import static it.unipi.mircv.utils.Utils.splitsLog128;
 
 /**
@@ -18,274 +12,184 @@ import static it.unipi.mircv.utils.Utils.splitsLog128;
 public class Compressor {
 
     /**
-     * Compress the given number using the Variable Byte Encoding.
-     * @param number Number to be compressed
-     * @return Array of bytes containing the code of the number
+     * Compress the given number using the Variable Byte Encoding, writing its code directly to the given writer. The
+     * code is the same written in an array by variableByteEncodeNumber, but no array is allocated.
+     * @param number Number to be compressed, must be greater or equal to 0
+     * @param output Writer on which the code is written
+     * @return Number of bytes of the code
      */
-    public static byte[] variableByteEncodeNumber(long number){
+    public static int variableByteEncodeNumber(long number, BinaryWriter output) throws IOException {
 
-        //If the number is 0, we return directly the code in VB of 0, otherwise the algorithm doesn't work
-        //In particular the log doesn't exist at 0, log(x) exists for x > 0
-        if(number == 0){
-            return new byte[]{(byte) 0x80};//In practice this case shouldn't happen, since a frequency is always > 0
-        }
-
-        //Retrieve the number of splits required to encode the number
+        //Number of groups of 7 bits needed
         int numberOfBytes = splitsLog128(number);
 
-        //Array to hold the encoded bytes
-        byte[] bytes = new byte[numberOfBytes];
-
-        //Write the number representation in big-endian order from the MSByte to the LSByte
-        for(int i = numberOfBytes - 1; i >= 0; i--){
-
-            //Prepend of the reminder of the division by 128 (retrieve the 7 LSB)
-            byte b = (byte) (number % 128);
-            bytes[i] = b;
-
-            //Shift right the number by 7 position
-            number /= 128;
+        //Write the groups from the most significant to the least significant
+        for(int i = numberOfBytes - 1; i > 0; i--){
+            output.writeByte((int) ((number >>> (7 * i)) & 0x7F));
         }
 
         //Set the control bit of the last byte to 1, to indicate that it is the last byte
-        bytes[numberOfBytes - 1] += 128;
+        output.writeByte((int) (number & 0x7F) | 0x80);
 
-        //Return the encoded number
-        return bytes;
+        return numberOfBytes;
     }
 
     /**
-     * Compress the given list of numbers using the Variable Byte Encoding; it will return a list of bytes that is
-     * the concatenation of the numbers' codes.
-     * @param numbers Numbers to be compressed.
-     * @return Array of bytes containing the compressed numbers.
+     * Compress the given number using the Variable Byte Encoding, writing its code in the given array.
+     * @param number Number to be compressed, must be greater or equal to 0
+     * @param output Array in which the code is written, it must have space for the code (at most 10 bytes)
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
      */
-    public static byte[] variableByteEncodeDocId(ArrayList<Long> numbers, ArrayList<SkipBlock> skipBlocks){
-
-        //Dimension of each skip block
-        int skipBlocksLength = (int) Math.floor(Math.sqrt(numbers.size()));
-
-        //Array to hold the bytes of the encoded numbers
-        ArrayList<Byte> bytes = new ArrayList<>();
-
-        //Counter for the number traversed currently, used to know if the cursor is in the position of a skip
-        int counter = 0;
-
-        //Accumulator to keep track of the starting byte of the current skip block (relative to its posting list offset)
-        int offsetSkipBlocks = 0;
-
-        //Accumulator to store the length of the current skip block
-        int numberOfBytes = 0;
-
-        //For each number in the list
-        for (Long number : numbers) {
-
-            //Increase the counter for the number of numbers processed
-            counter++;
-
-            //Encode each number and add it to the end of the array
-            for(byte b : variableByteEncodeNumber(number)){
-                bytes.add(b);
-
-                //Increment the skip blocks length in bytes
-                numberOfBytes++;
-            }
-
-            //If we're at a skip position, we create a new skip block
-            if(counter%skipBlocksLength == 0 || counter == numbers.size()){
-
-                //We pass the current starting offset, the length of the encoded block and the current number that is
-                // for sure the greater seen until now
-                skipBlocks.add(new SkipBlock(offsetSkipBlocks,numberOfBytes, number));
-
-                //Set the starting offset for the next skip block
-                offsetSkipBlocks += numberOfBytes;
+    public static int variableByteEncodeNumber(long number, byte[] output, int offset){
 
-                //Reset the variables for the next iteration
-                numberOfBytes = 0;
-
-            }
+        //Number of groups of 7 bits needed
+        int numberOfBytes = splitsLog128(number);
 
+        //Write the groups from the most significant to the least significant
+        for(int i = numberOfBytes - 1; i > 0; i--){
+            output[offset++] = (byte) ((number >>> (7 * i)) & 0x7F);
         }
 
-        //Array used to convert the arrayList into a byte array
-        byte[] result = new byte[bytes.size()];
-
-        //For each byte in the arrayList put it in the array of bytes
-        for(int i = 0; i < bytes.size(); i++){
-            result[i] = bytes.get(i);
-        }
+        //Set the control bit of the last byte to 1, to indicate that it is the last byte
+        output[offset++] = (byte) ((number & 0x7F) | 0x80);
 
-        //Return the array of bytes
-        return result;
+        return offset;
     }
 
+    /**
+     * Compress the given numbers using the Variable Byte Encoding, writing the concatenation of their codes in the
+     * given array. No object is allocated.
+     * @param numbers Array containing the numbers to be compressed
+     * @param count Number of numbers to be compressed, starting from the first
+     * @param output Array in which the codes are written, 5 bytes for each number are always enough
+     * @param offset Position of the array from which the codes are written
+     * @return Position of the array after the last code
+     */
+    public static int variableByteEncode(int[] numbers, int count, byte[] output, int offset){
+        for(int i = 0; i < count; i++){
+            offset = variableByteEncodeNumber(numbers[i], output, offset);
+        }
+        return offset;
+    }
 
+    /**
+     * Decode the Variable Byte codes contained in a portion of the given array, writing the numbers in the given
+     * array of integers. No object is allocated.
+     * @param input Array containing the codes
+     * @param offset Position of the first byte of the codes
+     * @param length Number of bytes of the codes
+     * @param output Array in which the numbers are written, since each code has at least one byte an array of length
+     *               bytes is always enough
+     * @return Number of numbers decoded
+     */
+    public static int variableByteDecode(byte[] input, int offset, int length, int[] output){
 
-    public static byte[] variableByteEncodeFreq(ArrayList<Integer> frequencies, ArrayList<SkipBlock> skipBlocks, ArrayList<Long> docIds, Tuple<Double,Double> maxscores , RandomAccessFile documentIndex, Statistics statistics){
-
-        //Dimension of each skip block
-        int skipBlocksLength = (int) Math.floor(Math.sqrt(frequencies.size()));
-
-        //Array to hold the bytes of the encoded numbers
-        ArrayList<Byte> bytes = new ArrayList<>();
-
-        //Counter for the number traversed currently, used to know if the cursor is in the position of a skip
-        int counter = 0;
-
-        //Accumulator to keep track of the starting byte of the current skip block (relative to its posting list offset)
-        int offsetSkipBlocks = 0;
-
-        //Accumulator to store the length of the current skip block
-        int numberOfBytes = 0;
-
-        Iterator<SkipBlock> skipBlocksIterator = skipBlocks.iterator();
-
-        int maxFreq = 0;
-
-        //To store the bm25 score for the current doc id
-        double tf_currentBm25;
-
-        //To store the max score for bm25
-        double tf_maxScoreBm25 = 0;
+        int count = 0;
 
-        //For each number in the list
-        for (Integer freq : frequencies) {
+        //Accumulator for the current decoded number
+        int number = 0;
 
-            //Retrieve the maximum to compute the TFIDF term upper bound
-            if(freq > maxFreq){
-                maxFreq = freq;
-            }
+        for(int i = offset; i < offset + length; i++){
+            byte aByte = input[i];
 
-            //Compute the bm25 scoring for the current document
-            tf_currentBm25 = freq/ (K1 * ((1-B) + B * ( (double) DocumentIndexEntry.getDocLenFromDisk(documentIndex, docIds.get(counter)) / statistics.getAvdl()) + freq));
+            //Add the 7 LSB of the byte to the accumulator
+            number = (number << 7) | (aByte & 0x7F);
 
-            //If the current max score for bm25 is greater than the previous score, update it
-            if(tf_currentBm25 > tf_maxScoreBm25){
-                tf_maxScoreBm25 = tf_currentBm25;
+            //If the MSB is 1 we're at the end of the code
+            if(aByte < 0){
+                output[count++] = number;
+                number = 0;
             }
+        }
 
-            //Increase the counter for the number of numbers processed
-            counter++;
+        return count;
+    }
 
-            //Encode each number and add it to the end of the array
-            for(byte b : variableByteEncodeNumber(freq)){
-                bytes.add(b);
+    /**
+     * Decode the Variable Byte codes of a list of docids encoded as gaps contained in a portion of the given array,
+     * writing the docids in the given array. The first gap is the gap from 0. No object is allocated.
+     * @param input Array containing the codes
+     * @param offset Position of the first byte of the codes
+     * @param length Number of bytes of the codes
+     * @param output Array in which the docids are written, since each code has at least one byte an array of length
+     *               bytes is always enough
+     * @return Number of docids decoded
+     */
+    public static int variableByteDecodeGaps(byte[] input, int offset, int length, long[] output){
 
-                //Increment the skip blocks length in bytes
-                numberOfBytes++;
-            }
+        int count = 0;
 
-            //If we're at a skip position, then we complete the information about the skip previously created
-            if(counter%skipBlocksLength == 0 || counter == frequencies.size()){
+        //Accumulator for the current decoded gap
+        long gap = 0;
 
-                //We pass the current starting offset and the current number that is for sure the greater seen until now
-                if(skipBlocksIterator.hasNext()){
+        //Last decoded docid, the next gap is added to it
+        long docId = 0;
 
-                    //Set the starting offset of the skip block and the length of the encoded frequencies
-                    skipBlocksIterator.next().setFreqInfo(offsetSkipBlocks, numberOfBytes);
-                }
-                //Set the starting offset for the next skip block
-                offsetSkipBlocks += numberOfBytes;
+        for(int i = offset; i < offset + length; i++){
+            byte aByte = input[i];
 
-                //Reset the variables for the next iteration
-                numberOfBytes = 0;
+            //Add the 7 LSB of the byte to the accumulator
+            gap = (gap << 7) | (aByte & 0x7F);
 
+            //If the MSB is 1 we're at the end of the code
+            if(aByte < 0){
+                docId += gap;
+                output[count++] = docId;
+                gap = 0;
             }
         }
 
-        //Set the max score parameters
-        maxscores.setFirst((double) maxFreq);
-        maxscores.setSecond(tf_maxScoreBm25);
-
-        //Array used to convert the arrayList into a byte array
-        byte[] result = new byte[bytes.size()];
-
-        //For each byte in the arrayList put it in the array of bytes
-        for(int i = 0; i < bytes.size(); i++){
-            result[i] = bytes.get(i);
-        }
-
-        //Return the array of bytes
-        return result;
+        return count;
     }
 
-
     /**
-     * Decode the given array of bytes that contains a Variable Byte Encoding of a list of integers, returning the
-     * corresponding list of integers.
-     * @param bytes Compressed list of integers.
-     * @return Decompressed list of integers.
+     * Decode the given number of Variable Byte codes starting from the position of the given buffer, writing the
+     * numbers in the given array of integers. The position of the buffer is moved after the last code.
+     * @param input Buffer containing the codes
+     * @param count Number of numbers to be decoded
+     * @param output Array in which the numbers are written
      */
-    public static ArrayList<Integer> variableByteDecode(byte[] bytes){
-
-        //Array to hold the decoded numbers
-        ArrayList<Integer> numbers = new ArrayList<>();
-
-        //Accumulator for the current decoded number
-        int number = 0;
+    public static void variableByteDecode(ByteBuffer input, int count, int[] output){
 
-        //For each byte in the array
-        for (byte aByte : bytes) {
+        for(int i = 0; i < count; i++){
+            int number = 0;
+            byte aByte;
 
-            //We use the mask 0x80 = 1000 0000, to check if the MSB of the byte is 1
-            if ((aByte & 0x80) == 0x00) {
-                //The MSB is 0, then we're not at the end of the sequence of bytes of the code
-                number = number * 128 + aByte;
-            } else {
-                //The MSB is 1, then we're at the end
+            //Accumulate the groups of 7 bits until the byte with the MSB equal to 1, that is the last of the code
+            do {
+                aByte = input.get();
+                number = (number << 7) | (aByte & 0x7F);
+            } while (aByte >= 0);
 
-                //Add to the accumulator number*128 + the integer value in aByte discarding the 1 in the MSB
-                number = number * 128 + (aByte &  0x7F);
-
-                //Add the decoded number to the list of numbers
-                numbers.add(number);
-
-                //Reset the accumulator
-                number = 0;
-            }
+            output[i] = number;
         }
-
-        //Return the list of numbers
-        return numbers;
     }
 
     /**
-     * Decode the given array of bytes that contains a Variable Byte Encoding of a list of longs, returning the
-     * corresponding list of longs.
-     * @param bytes Compressed list of longs.
-     * @return Decompressed list of longs.
+     * Decode the given number of Variable Byte codes of docids encoded as gaps starting from the position of the given
+     * buffer, writing the docids in the given array. The first gap is the gap from 0. The position of the buffer is
+     * moved after the last code.
+     * @param input Buffer containing the codes
+     * @param count Number of docids to be decoded
+     * @param output Array in which the docids are written
      */
-    public static ArrayList<Long> variableByteDecodeLong(byte[] bytes){
-
-        //Array to hold the decoded numbers
-        ArrayList<Long> numbers = new ArrayList<>();
-
-        //Accumulator for the current decoded number
-        long number = 0;
+    public static void variableByteDecodeGaps(ByteBuffer input, int count, long[] output){
 
-        //For each byte in the array
-        for (byte aByte : bytes) {
+        long docId = 0;
 
-            //We use the mask 0x80 = 1000 0000, to check if the MSB of the byte is 1
-            if ((aByte & 0x80) == 0x00) {
-                //The MSB is 0, then we're not at the end of the sequence of bytes of the code
-                number = number * 128 + aByte;
-            } else {
-                //The MSB is 1, then we're at the end
+        for(int i = 0; i < count; i++){
+            long gap = 0;
+            byte aByte;
 
-                //Add to the accumulator number*128 + the integer value in aByte discarding the 1 in the MSB
-                number = number * 128 + (aByte &  0x7F);
+            //Accumulate the groups of 7 bits until the byte with the MSB equal to 1, that is the last of the code
+            do {
+                aByte = input.get();
+                gap = (gap << 7) | (aByte & 0x7F);
+            } while (aByte >= 0);
 
-                //Add the decoded number to the list of numbers
-                numbers.add(number);
-
-                //Reset the accumulator
-                number = 0;
-            }
+            docId += gap;
+            output[i] = docId;
         }
-
-        //Return the list of numbers
-        return numbers;
     }
 }
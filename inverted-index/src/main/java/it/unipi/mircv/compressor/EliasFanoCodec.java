@@ -0,0 +1,120 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Elias-Fano codec for the docids, the frequencies are encoded with Variable Byte. The docids of a skip block are
+ * encoded as the first docid, with Variable Byte, followed by the Elias-Fano representation of the differences from
+ * the first docid: each difference is split in L low bits, written with a fixed number of bits, and the high bits,
+ * written in unary as the gaps between consecutive high parts in a bit vector. L is chosen as floor(log2(u/n)), where
+ * u is the largest difference and n the number of docids, so each docid takes at most 2 + L bits.
+ */
+public class EliasFanoCodec implements PostingCodec {
+
+    public static final String NAME = "eliasfano";
+
+    //Differences of the docids from the first one, reused between the calls
+    private long[] values = new long[0];
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        //First docid, number of low bits, low bits and high bits: at most 64 + 3 bits for each docid
+        return 10 + 1 + 9 * count + 1;
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+
+        if(count == 0){
+            return offset;
+        }
+
+        ensureCapacity(count);
+
+        long first = docIds[0];
+        long universe = docIds[count - 1] - first;
+
+        //Number of low bits of each value
+        int lowBits = universe / count > 0 ? 63 - Long.numberOfLeadingZeros(universe / count) : 0;
+
+        offset = Compressor.variableByteEncodeNumber(first, output, offset);
+        output[offset++] = (byte) lowBits;
+
+        for(int i = 0; i < count; i++){
+            values[i] = docIds[i] - first;
+        }
+
+        //Write the low bits of all the values
+        offset = BitPacking.pack(values, 0, count, lowBits, output, offset);
+
+        //Write the high bits: the i-th value sets the bit at position i + (value >>> lowBits)
+        int highBytes = BitPacking.bytesFor(count + (universe >>> lowBits) + 1);
+        for(int i = offset; i < offset + highBytes; i++){
+            output[i] = 0;
+        }
+        for(int i = 0; i < count; i++){
+            long position = i + (values[i] >>> lowBits);
+            output[offset + (int) (position >>> 3)] |= (byte) (1 << (position & 7));
+        }
+
+        return offset + highBytes;
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        return Compressor.variableByteEncode(frequencies, count, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+
+        if(count == 0){
+            return;
+        }
+
+        //Read the first docid
+        long first = 0;
+        byte aByte;
+        do {
+            aByte = input[offset++];
+            first = (first << 7) | (aByte & 0x7F);
+        } while (aByte >= 0);
+
+        int lowBits = input[offset++];
+
+        //Read the low bits in the output array, then add the high bits and the first docid
+        offset = BitPacking.unpack(input, offset, lowBits, output, 0, count);
+
+        //The position of the i-th set bit of the high bits vector minus i is the high part of the i-th value
+        int decoded = 0;
+        for(int index = offset; decoded < count; index++){
+            int highByte = input[index] & 0xFF;
+            while(highByte != 0 && decoded < count){
+                int bit = Integer.numberOfTrailingZeros(highByte);
+                highByte &= highByte - 1;
+
+                long high = ((long) (index - offset) << 3) + bit - decoded;
+                output[decoded] = first + ((high << lowBits) | output[decoded]);
+                decoded++;
+            }
+        }
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        Compressor.variableByteDecode(input, offset, length, output);
+    }
+
+    /**
+     * Make sure that the values array can contain the given number of values.
+     * @param count Number of values
+     */
+    private void ensureCapacity(int count) {
+        if(values.length < count){
+            values = new long[count];
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package it.unipi.mircv.compressor;
+
+import java.util.Arrays;
+
+/**
+ * Patched frame of reference codec (PForDelta). The values, the gaps between the docids of the skip block (the first
+ * one is the gap from 0) or the frequencies, are divided in blocks of 128 values. All the values of a block are packed
+ * using the same number of bits, chosen so that at least 90% of the values fit; the high bits of the values that
+ * don't fit are stored as exceptions after the packed values.
+ * The code of a block is: the number of bits (1 byte), the number of exceptions (1 byte), the packed low bits of the
+ * values and, for each exception, its position in the block (1 byte) and its high bits encoded with Variable Byte.
+ */
+public class PForDeltaCodec implements PostingCodec {
+
+    public static final String NAME = "pfordelta";
+
+    //Number of values of each block
+    static final int BLOCK_SIZE = 128;
+
+    //Maximum fraction of exceptions in a block
+    private static final double EXCEPTIONS_RATIO = 0.1;
+
+    //Values of the skip block being encoded or decoded, reused between the calls
+    private long[] values = new long[BLOCK_SIZE];
+
+    //Number of values of the current block that need each number of bits, reused between the blocks
+    private final int[] widths = new int[65];
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        //Header of each block, values packed with 64 bits and exceptions of at most 1 + 10 bytes
+        int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        return 2 * blocks + 8 * count + (int) Math.ceil(count * EXCEPTIONS_RATIO) * 11 + blocks * 11;
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        long previousDocId = 0;
+        for(int i = 0; i < count; i++){
+            values[i] = docIds[i] - previousDocId;
+            previousDocId = docIds[i];
+        }
+
+        return encode(count, output, offset);
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        for(int i = 0; i < count; i++){
+            values[i] = frequencies[i];
+        }
+
+        return encode(count, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+        decode(input, offset, count, output);
+
+        //Sum the gaps to obtain the docids
+        for(int i = 1; i < count; i++){
+            output[i] += output[i - 1];
+        }
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        ensureCapacity(count);
+        decode(input, offset, count, values);
+
+        for(int i = 0; i < count; i++){
+            output[i] = (int) values[i];
+        }
+    }
+
+    /**
+     * Encode the first count values of the values array.
+     * @param count Number of values
+     * @param output Array in which the code is written
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
+     */
+    private int encode(int count, byte[] output, int offset) {
+
+        for(int start = 0; start < count; start += BLOCK_SIZE){
+            int size = Math.min(BLOCK_SIZE, count - start);
+
+            //Count the values that need each number of bits
+            Arrays.fill(widths, 0);
+            for(int i = start; i < start + size; i++){
+                widths[BitPacking.bitWidth(values[i])]++;
+            }
+
+            //Choose the smallest number of bits such that the exceptions are at most the allowed fraction
+            int maxExceptions = (int) (size * EXCEPTIONS_RATIO);
+            int bits = 64;
+            int exceptions = 0;
+            while(bits > 0 && exceptions + widths[bits] <= maxExceptions){
+                exceptions += widths[bits];
+                bits--;
+            }
+
+            output[offset++] = (byte) bits;
+            output[offset++] = (byte) exceptions;
+
+            offset = BitPacking.pack(values, start, size, bits, output, offset);
+
+            //Write the position and the high bits of the values that don't fit
+            if(exceptions > 0){
+                for(int i = start; i < start + size; i++){
+                    long high = values[i] >>> bits;
+                    if(bits < 64 && high != 0){
+                        output[offset++] = (byte) (i - start);
+                        offset = Compressor.variableByteEncodeNumber(high, output, offset);
+                    }
+                }
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Decode count values in the given array.
+     * @param input Array containing the code
+     * @param offset Position of the first byte of the code
+     * @param count Number of values
+     * @param output Array in which the values are written
+     */
+    private static void decode(byte[] input, int offset, int count, long[] output) {
+
+        for(int start = 0; start < count; start += BLOCK_SIZE){
+            int size = Math.min(BLOCK_SIZE, count - start);
+
+            int bits = input[offset++];
+            int exceptions = input[offset++] & 0xFF;
+
+            offset = BitPacking.unpack(input, offset, bits, output, start, size);
+
+            //Patch the exceptions adding their high bits
+            for(int i = 0; i < exceptions; i++){
+                int position = input[offset++] & 0xFF;
+
+                long high = 0;
+                byte aByte;
+                do {
+                    aByte = input[offset++];
+                    high = (high << 7) | (aByte & 0x7F);
+                } while (aByte >= 0);
+
+                output[start + position] |= high << bits;
+            }
+        }
+    }
+
+    /**
+     * Make sure that the values array can contain the given number of values.
+     * @param count Number of values
+     */
+    private void ensureCapacity(int count) {
+        if(values.length < count){
+            values = new long[count];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Codec used to compress the posting lists of the inverted index. The docids and the frequencies are encoded one skip
+ * block at a time, and the codes of each skip block are decoded independently from the other skip blocks of the
+ * posting list, so the skipping mechanism can jump directly to any skip block. The number of postings of a skip block
+ * is not stored by the codecs, the caller knows it from the length of the posting list.
+ * The implementations can keep internal buffers, so an instance must be used by a single thread.
+ */
+public interface PostingCodec {
+
+    /**
+     * Get the name of the codec, it is stored in the configuration of the index.
+     * @return the name of the codec.
+     */
+    String getName();
+
+    /**
+     * Get the maximum number of bytes needed to encode the given number of docids or frequencies.
+     * @param count Number of values to be encoded
+     * @return the maximum length in bytes of the code.
+     */
+    int maxEncodedLength(int count);
+
+    /**
+     * Encode the docids of a skip block.
+     * @param docIds Array containing the docids, in increasing order
+     * @param count Number of docids to be encoded, starting from the first
+     * @param output Array in which the code is written, it must have maxEncodedLength(count) bytes available
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
+     */
+    int encodeDocIds(long[] docIds, int count, byte[] output, int offset);
+
+    /**
+     * Encode the frequencies of a skip block.
+     * @param frequencies Array containing the frequencies
+     * @param count Number of frequencies to be encoded, starting from the first
+     * @param output Array in which the code is written, it must have maxEncodedLength(count) bytes available
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
+     */
+    int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset);
+
+    /**
+     * Decode the docids of a skip block.
+     * @param input Array containing the code
+     * @param offset Position of the first byte of the code
+     * @param length Length in bytes of the code
+     * @param count Number of docids in the skip block
+     * @param output Array in which the docids are written
+     */
+    void decodeDocIds(byte[] input, int offset, int length, int count, long[] output);
+
+    /**
+     * Decode the frequencies of a skip block.
+     * @param input Array containing the code
+     * @param offset Position of the first byte of the code
+     * @param length Length in bytes of the code
+     * @param count Number of frequencies in the skip block
+     * @param output Array in which the frequencies are written
+     */
+    void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output);
+
+    /**
+     * Create a new instance of the codec with the given name.
+     * @param name Name of the codec: vb, pfordelta, simple8b, eliasfano or streamvbyte
+     * @return a new instance of the codec.
+     * @throws IllegalArgumentException if no codec has the given name
+     */
+    static PostingCodec forName(String name) {
+        switch (name) {
+            case VariableByteCodec.NAME:
+                return new VariableByteCodec();
+            case PForDeltaCodec.NAME:
+                return new PForDeltaCodec();
+            case Simple8bCodec.NAME:
+                return new Simple8bCodec();
+            case EliasFanoCodec.NAME:
+                return new EliasFanoCodec();
+            case StreamVByteCodec.NAME:
+                return new StreamVByteCodec();
+            default:
+                throw new IllegalArgumentException("Unknown posting codec: " + name);
+        }
+    }
+
+    /**
+     * Create a new instance of the codec of an index with the given skip block size.
+     * @param name Name of the codec, see forName
+     * @param skipBlockSize Number of postings of each skip block, 0 if the skip blocks have sqrt(n) postings
+     * @return a new instance of the codec, with the frequencies bit packed if the skip blocks have a fixed size.
+     * @throws IllegalArgumentException if no codec has the given name
+     */
+    static PostingCodec forLayout(String name, int skipBlockSize) {
+        PostingCodec codec = forName(name);
+        return skipBlockSize > 0 ? new BitPackedFrequencyCodec(codec) : codec;
+    }
+}
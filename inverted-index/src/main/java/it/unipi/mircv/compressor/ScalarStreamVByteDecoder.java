@@ -0,0 +1,34 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Stream VByte decoder that reads one byte at a time, it is used when no vectorized decoder is available.
+ */
+public class ScalarStreamVByteDecoder implements StreamVByteDecoder {
+
+    @Override
+    public void decode(byte[] input, int offset, int count, int[] output, boolean differential) {
+
+        //The data bytes start after the control bytes, one for each group of 4 values
+        int dataPosition = offset + StreamVByteCodec.controlBytes(count);
+
+        int previous = 0;
+        for(int i = 0; i < count; i++){
+
+            //Length in bytes of the value, stored as length - 1 in 2 bits of the control byte
+            int length = ((input[offset + (i >>> 2)] >>> ((i & 3) << 1)) & 3) + 1;
+
+            //The bytes of the value are in little-endian order
+            int value = 0;
+            for(int j = 0; j < length; j++){
+                value |= (input[dataPosition++] & 0xFF) << (j << 3);
+            }
+
+            if(differential){
+                value += previous;
+                previous = value;
+            }
+
+            output[i] = value;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Simple-8b codec. The values, the gaps between the docids of the skip block (the first one is the gap from 0) or the
+ * frequencies, are packed in words of 64 bits: the 4 most significant bits are a selector that tells how many values
+ * are in the word and how many bits each value uses, the other 60 bits contain the values. The words are written in
+ * big-endian order. The last word can be only partially used, the decoder stops after the number of values of the
+ * skip block.
+ */
+public class Simple8bCodec implements PostingCodec {
+
+    public static final String NAME = "simple8b";
+
+    //Number of values of each selector, the first two selectors are used for runs of zeros
+    private static final int[] COUNTS = {240, 120, 60, 30, 20, 15, 12, 10, 8, 7, 6, 5, 4, 3, 2, 1};
+
+    //Number of bits of the values of each selector
+    private static final int[] BITS = {0, 0, 1, 2, 3, 4, 5, 6, 7, 8, 10, 12, 15, 20, 30, 60};
+
+    //Largest value that can be encoded
+    private static final long MAX_VALUE = (1L << 60) - 1;
+
+    //Values of the skip block being encoded or decoded, reused between the calls
+    private long[] values = new long[0];
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        //In the worst case each value takes a word
+        return Long.BYTES * count;
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        long previousDocId = 0;
+        for(int i = 0; i < count; i++){
+            values[i] = docIds[i] - previousDocId;
+            previousDocId = docIds[i];
+        }
+
+        return encode(count, output, offset);
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        for(int i = 0; i < count; i++){
+            values[i] = frequencies[i];
+        }
+
+        return encode(count, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+        decode(input, offset, count, output);
+
+        //Sum the gaps to obtain the docids
+        for(int i = 1; i < count; i++){
+            output[i] += output[i - 1];
+        }
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        ensureCapacity(count);
+        decode(input, offset, count, values);
+
+        for(int i = 0; i < count; i++){
+            output[i] = (int) values[i];
+        }
+    }
+
+    /**
+     * Encode the first count values of the values array.
+     * @param count Number of values
+     * @param output Array in which the code is written
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
+     */
+    private int encode(int count, byte[] output, int offset) {
+
+        int position = 0;
+        while(position < count){
+
+            //Find the first selector, so the one with more values, such that all its values fit in its bits
+            int selector = 0;
+            while(!fits(selector, position, count)){
+                selector++;
+            }
+
+            int bits = BITS[selector];
+            int size = Math.min(COUNTS[selector], count - position);
+
+            long word = (long) selector << 60;
+            for(int i = 0; i < size; i++){
+                word |= values[position + i] << (i * bits);
+            }
+            position += size;
+
+            for(int shift = 56; shift >= 0; shift -= 8){
+                output[offset++] = (byte) (word >>> shift);
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Check if the values starting from the given position fit in a word with the given selector.
+     * @param selector Selector of the word
+     * @param position Position of the first value
+     * @param count Number of values
+     * @return true if the values fit in the word
+     */
+    private boolean fits(int selector, int position, int count) {
+
+        long maxValue = (1L << BITS[selector]) - 1;
+        int end = Math.min(position + COUNTS[selector], count);
+
+        for(int i = position; i < end; i++){
+            if(values[i] > maxValue){
+                if(values[i] > MAX_VALUE){
+                    throw new IllegalArgumentException("Value too large for Simple-8b: " + values[i]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decode count values in the given array.
+     * @param input Array containing the code
+     * @param offset Position of the first byte of the code
+     * @param count Number of values
+     * @param output Array in which the values are written
+     */
+    private static void decode(byte[] input, int offset, int count, long[] output) {
+
+        int position = 0;
+        while(position < count){
+
+            long word = 0;
+            for(int i = 0; i < Long.BYTES; i++){
+                word = (word << 8) | (input[offset++] & 0xFF);
+            }
+
+            int selector = (int) (word >>> 60);
+            int bits = BITS[selector];
+            long mask = (1L << bits) - 1;
+            int size = Math.min(COUNTS[selector], count - position);
+
+            for(int i = 0; i < size; i++){
+                output[position++] = (word >>> (i * bits)) & mask;
+            }
+        }
+    }
+
+    /**
+     * Make sure that the values array can contain the given number of values.
+     * @param count Number of values
+     */
+    private void ensureCapacity(int count) {
+        if(values.length < count){
+            values = new long[count];
+        }
+    }
+}
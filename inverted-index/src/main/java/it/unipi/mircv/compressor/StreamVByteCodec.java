@@ -0,0 +1,126 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Stream VByte codec. The values, the gaps between the docids of the skip block (the first one is the gap from 0) or
+ * the frequencies, are written with 1 to 4 bytes each in little-endian order; the lengths are stored apart, 2 bits for
+ * each value, in control bytes placed before the data bytes. Since the length of a group of 4 values is known from a
+ * single control byte, the groups can be decoded with vector shuffles. The values must fit in 32 bits unsigned, so the
+ * docids must be lower than 2^32.
+ * The decoding is done by the current StreamVByteDecoder, the scalar one by default.
+ */
+public class StreamVByteCodec implements PostingCodec {
+
+    public static final String NAME = "streamvbyte";
+
+    //Decoder used by all the instances of the codec
+    private static volatile StreamVByteDecoder decoder = new ScalarStreamVByteDecoder();
+
+    //Values of the skip block being encoded or decoded, reused between the calls
+    private int[] values = new int[0];
+
+    /**
+     * Set the decoder used by all the instances of the codec.
+     * @param decoder Decoder of the Stream VByte format
+     */
+    public static void setDecoder(StreamVByteDecoder decoder) {
+        StreamVByteCodec.decoder = decoder;
+    }
+
+    /**
+     * Get the number of control bytes needed for the given number of values.
+     * @param count Number of values
+     * @return the number of control bytes.
+     */
+    public static int controlBytes(int count) {
+        return (count + 3) >>> 2;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        return controlBytes(count) + Integer.BYTES * count;
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+        ensureCapacity(count);
+
+        long previousDocId = 0;
+        for(int i = 0; i < count; i++){
+            if(docIds[i] >>> 32 != 0){
+                throw new IllegalArgumentException("Docid too large for Stream VByte: " + docIds[i]);
+            }
+            values[i] = (int) (docIds[i] - previousDocId);
+            previousDocId = docIds[i];
+        }
+
+        return encode(values, count, output, offset);
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        return encode(frequencies, count, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+        ensureCapacity(count);
+        decoder.decode(input, offset, count, values, true);
+
+        for(int i = 0; i < count; i++){
+            output[i] = Integer.toUnsignedLong(values[i]);
+        }
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        decoder.decode(input, offset, count, output, false);
+    }
+
+    /**
+     * Encode the given values, interpreted as unsigned integers.
+     * @param values Array containing the values
+     * @param count Number of values, starting from the first
+     * @param output Array in which the code is written
+     * @param offset Position of the array from which the code is written
+     * @return Position of the array after the code
+     */
+    public static int encode(int[] values, int count, byte[] output, int offset) {
+
+        int controlBytes = controlBytes(count);
+        int dataPosition = offset + controlBytes;
+
+        for(int i = 0; i < controlBytes; i++){
+            output[offset + i] = 0;
+        }
+
+        for(int i = 0; i < count; i++){
+            int value = values[i];
+
+            //Number of bytes of the value, at least one
+            int length = Math.max(1, (32 - Integer.numberOfLeadingZeros(value) + 7) >>> 3);
+
+            output[offset + (i >>> 2)] |= (byte) ((length - 1) << ((i & 3) << 1));
+
+            for(int j = 0; j < length; j++){
+                output[dataPosition++] = (byte) (value >>> (j << 3));
+            }
+        }
+
+        return dataPosition;
+    }
+
+    /**
+     * Make sure that the values array can contain the given number of values.
+     * @param count Number of values
+     */
+    private void ensureCapacity(int count) {
+        if(values.length < count){
+            values = new int[count];
+        }
+    }
+}
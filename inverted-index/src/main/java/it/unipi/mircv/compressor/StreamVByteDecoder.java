@@ -0,0 +1,19 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Decoder of the Stream VByte format used by StreamVByteCodec. The format separates the control bytes from the data
+ * bytes, so the decoding of a group of 4 values does not depend on the previous one and it can be vectorized; the
+ * modules running on a recent JDK can replace the scalar decoder with a vectorized one.
+ */
+public interface StreamVByteDecoder {
+
+    /**
+     * Decode the given number of values.
+     * @param input Array containing the code
+     * @param offset Position of the first control byte
+     * @param count Number of values to be decoded
+     * @param output Array in which the values are written
+     * @param differential If true the values are gaps and the output contains their prefix sums
+     */
+    void decode(byte[] input, int offset, int count, int[] output, boolean differential);
+}
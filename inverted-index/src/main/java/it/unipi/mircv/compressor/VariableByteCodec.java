@@ -0,0 +1,46 @@
+package it.unipi.mircv.compressor;
+
+/**
+ * Variable Byte codec. The docids are encoded as gaps from the previous docid of the skip block, the first one is the
+ * gap from 0, and the frequencies are encoded as they are.
+ */
+public class VariableByteCodec implements PostingCodec {
+
+    public static final String NAME = "vb";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int maxEncodedLength(int count) {
+        //A long requires at most 10 groups of 7 bits
+        return 10 * count;
+    }
+
+    @Override
+    public int encodeDocIds(long[] docIds, int count, byte[] output, int offset) {
+        long previousDocId = 0;
+        for(int i = 0; i < count; i++){
+            offset = Compressor.variableByteEncodeNumber(docIds[i] - previousDocId, output, offset);
+            previousDocId = docIds[i];
+        }
+        return offset;
+    }
+
+    @Override
+    public int encodeFrequencies(int[] frequencies, int count, byte[] output, int offset) {
+        return Compressor.variableByteEncode(frequencies, count, output, offset);
+    }
+
+    @Override
+    public void decodeDocIds(byte[] input, int offset, int length, int count, long[] output) {
+        Compressor.variableByteDecodeGaps(input, offset, length, output);
+    }
+
+    @Override
+    public void decodeFrequencies(byte[] input, int offset, int length, int count, int[] output) {
+        Compressor.variableByteDecode(input, offset, length, output);
+    }
+}
@@ -0,0 +1,181 @@
+package it.unipi.mircv.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered reader of binary files, designed for sequential scans. The file is read in large chunks in a direct buffer
+ * and the values are decoded from memory, so the small reads of the index structures don't require a system call
+ * each. The values are read in big-endian order, as done by RandomAccessFile.
+ */
+public class BinaryReader implements Closeable {
+
+    //Default size in bytes of the read-ahead buffer
+    public static final int BUFFER_SIZE = Integer.getInteger("mircv.readBufferSize", 1 << 20);
+
+    //Channel of the input file
+    private final FileChannel channel;
+
+    //Buffer containing the bytes read from the channel and not yet consumed
+    private final ByteBuffer buffer;
+
+    //Offset in the file of the first byte of the buffer
+    private long bufferStart;
+
+    /**
+     * Constructor of the class, the reading starts from the beginning of the file.
+     * @param path Path of the file to be read
+     */
+    public BinaryReader(String path) throws IOException {
+        this(path, BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor of the class, the reading starts from the beginning of the file.
+     * @param path Path of the file to be read
+     * @param bufferSize Size in bytes of the buffer, it must be at least 8 bytes
+     */
+    public BinaryReader(String path, int bufferSize) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+
+        //The buffer starts empty
+        ((Buffer) buffer).limit(0);
+        bufferStart = 0;
+    }
+
+    /**
+     * Read a single byte.
+     * @return the byte read, as an unsigned value between 0 and 255
+     * @throws EOFException if the end of the file is reached
+     */
+    public int readByte() throws IOException {
+        ensureAvailable(1);
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Read an int of 4 bytes.
+     * @return the int read
+     * @throws EOFException if the end of the file is reached
+     */
+    public int readInt() throws IOException {
+        ensureAvailable(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    /**
+     * Read a long of 8 bytes.
+     * @return the long read
+     * @throws EOFException if the end of the file is reached
+     */
+    public long readLong() throws IOException {
+        ensureAvailable(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    /**
+     * Read a double of 8 bytes.
+     * @return the double read
+     * @throws EOFException if the end of the file is reached
+     */
+    public double readDouble() throws IOException {
+        ensureAvailable(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    /**
+     * Read exactly the number of bytes needed to fill the given array.
+     * @param bytes Array in which the bytes are copied
+     * @throws EOFException if the end of the file is reached
+     */
+    public void readFully(byte[] bytes) throws IOException {
+
+        int read = 0;
+        while(read < bytes.length){
+
+            //Refill the buffer if it is empty
+            if(!buffer.hasRemaining() && !fill()){
+                throw new EOFException();
+            }
+
+            int length = Math.min(buffer.remaining(), bytes.length - read);
+            buffer.get(bytes, read, length);
+            read += length;
+        }
+    }
+
+    /**
+     * Check if there are other bytes to be read.
+     * @return true if the end of the file is not reached.
+     */
+    public boolean hasRemaining() throws IOException {
+        return buffer.hasRemaining() || getPosition() < channel.size();
+    }
+
+    /**
+     * Get the offset in the file of the next byte that will be read.
+     * @return the current position in the file.
+     */
+    public long getPosition() {
+        return bufferStart + buffer.position();
+    }
+
+    /**
+     * Move the reading to the given offset of the file. If the offset is in the buffer no read is performed.
+     * @param position Offset in the file from which the reading continues
+     */
+    public void seek(long position) {
+        if(position >= bufferStart && position <= bufferStart + buffer.limit()){
+            ((Buffer) buffer).position((int) (position - bufferStart));
+        }else{
+            //Empty the buffer, the next read fills it from the new position
+            bufferStart = position;
+            ((Buffer) buffer).limit(0);
+        }
+    }
+
+    /**
+     * Close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Make sure that at least the given number of bytes is in the buffer, reading from the file if needed.
+     * @param bytes Number of bytes needed
+     * @throws EOFException if the end of the file is reached before
+     */
+    private void ensureAvailable(int bytes) throws IOException {
+        while(buffer.remaining() < bytes){
+            if(!fill()){
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Move the bytes not yet consumed at the beginning of the buffer and fill the rest of it reading from the file.
+     * @return false if the end of the file is reached and no byte was read
+     */
+    private boolean fill() throws IOException {
+
+        bufferStart += buffer.position();
+        buffer.compact();
+
+        int read = channel.read(buffer, bufferStart + buffer.position());
+
+        //The cast keeps the compatibility with the Java 8 runtime, where flip() returns a Buffer
+        ((Buffer) buffer).flip();
+
+        return read > 0;
+    }
+}
@@ -0,0 +1,189 @@
+package it.unipi.mircv.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered writer of binary files. The values are accumulated in a large direct buffer that is written to the file
+ * channel only when it is full, so the small writes of the index structures (postings, lexicon entries, skip blocks,
+ * document index entries) are turned into few large writes. The values are written in big-endian order, as done by
+ * RandomAccessFile, so the files have the same format.
+ */
+public class BinaryWriter implements Closeable {
+
+    //Default size in bytes of the buffer
+    public static final int BUFFER_SIZE = Integer.getInteger("mircv.writeBufferSize", 1 << 20);
+
+    //Channel of the output file
+    private final FileChannel channel;
+
+    //Buffer containing the bytes not yet written to the channel
+    private final ByteBuffer buffer;
+
+    //Number of bytes written to the channel
+    private long flushedBytes;
+
+    /**
+     * Constructor of the class, it creates the file or truncates it if it exists.
+     * @param path Path of the file to be written
+     */
+    public BinaryWriter(String path) throws IOException {
+        this(path, BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor of the class, it creates the file or truncates it if it exists.
+     * @param path Path of the file to be written
+     * @param bufferSize Size in bytes of the buffer, it must be at least 8 bytes
+     */
+    public BinaryWriter(String path, int bufferSize) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        flushedBytes = 0;
+    }
+
+    /**
+     * Write a long using 8 bytes.
+     * @param value Value to be written
+     */
+    public void writeLong(long value) throws IOException {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Write an int using 4 bytes.
+     * @param value Value to be written
+     */
+    public void writeInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Write a double using 8 bytes.
+     * @param value Value to be written
+     */
+    public void writeDouble(double value) throws IOException {
+        ensureRemaining(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Write all the given bytes.
+     * @param bytes Bytes to be written
+     */
+    public void write(byte[] bytes) throws IOException {
+        write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Write a portion of the given array of bytes.
+     * @param bytes Array containing the bytes to be written
+     * @param offset Index of the first byte to be written
+     * @param length Number of bytes to be written
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+
+        //If the bytes fit in the buffer they are copied, otherwise the buffer is emptied and they are written directly
+        if(length <= buffer.remaining()){
+            buffer.put(bytes, offset, length);
+            return;
+        }
+
+        flush();
+
+        if(length <= buffer.capacity()){
+            buffer.put(bytes, offset, length);
+        }else{
+            writeFully(ByteBuffer.wrap(bytes, offset, length));
+            flushedBytes += length;
+        }
+    }
+
+    /**
+     * Write the given bytes in a field of fixed length, the remaining bytes of the field are filled with zeros.
+     * @param bytes Bytes to be written
+     * @param fieldLength Length in bytes of the field
+     * @throws BufferOverflowException if the bytes don't fit in the field
+     */
+    public void writeFixedLength(byte[] bytes, int fieldLength) throws IOException {
+
+        if(bytes.length > fieldLength){
+            throw new BufferOverflowException();
+        }
+
+        write(bytes);
+        for(int i = bytes.length; i < fieldLength; i++){
+            writeByte(0);
+        }
+    }
+
+    /**
+     * Write a single byte.
+     * @param value Byte to be written, only the lowest 8 bits are used
+     */
+    public void writeByte(int value) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Get the number of bytes written since the creation of the writer, including the ones still in the buffer. It is
+     * the offset in the file at which the next value will be written.
+     * @return the current position in the file.
+     */
+    public long getPosition() {
+        return flushedBytes + buffer.position();
+    }
+
+    /**
+     * Write the content of the buffer to the file.
+     */
+    public void flush() throws IOException {
+
+        //The cast keeps the compatibility with the Java 8 runtime, where flip() returns a Buffer
+        ((Buffer) buffer).flip();
+        flushedBytes += buffer.remaining();
+        writeFully(buffer);
+        ((Buffer) buffer).clear();
+    }
+
+    /**
+     * Flush the buffer and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Flush the buffer if it has less than the given number of bytes available.
+     * @param bytes Number of bytes needed
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if(buffer.remaining() < bytes){
+            flush();
+        }
+    }
+
+    /**
+     * Write all the remaining bytes of the given buffer to the channel.
+     * @param source Buffer to be written
+     */
+    private void writeFully(ByteBuffer source) throws IOException {
+        while(source.hasRemaining()){
+            channel.write(source);
+        }
+    }
+}
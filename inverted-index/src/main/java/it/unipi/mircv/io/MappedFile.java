@@ -0,0 +1,151 @@
+package it.unipi.mircv.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapping of a whole file. A single mapping can't be larger than 2GB, so the file is mapped in chunks
+ * of CHUNK_SIZE bytes by default and the reads crossing two chunks are split. The values are read in big-endian order,
+ * as written by BinaryWriter. The mappings are accessed only with absolute positions, so a MappedFile can be shared by
+ * threads.
+ */
+public class MappedFile {
+
+    //Default size in bytes of each mapped chunk, at most Integer.MAX_VALUE
+    public static final long CHUNK_SIZE = Long.getLong("mircv.mapChunkSize", 1L << 30);
+
+    //Size in bytes of each mapped chunk of this file
+    private final long chunkSize;
+
+    //Mappings of the chunks of the file, all of chunkSize bytes except the last one
+    private final MappedByteBuffer[] chunks;
+
+    //Size of the file in bytes
+    private final long size;
+
+    /**
+     * Constructor of the class, it maps the whole file.
+     * @param path Path of the file to be mapped
+     * @throws IllegalArgumentException if the chunk size set with mircv.mapChunkSize is not valid
+     */
+    public MappedFile(String path) throws IOException {
+        this(path, CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor of the class, it maps the whole file in chunks of the given size.
+     * @param path Path of the file to be mapped
+     * @param chunkSize Size in bytes of each mapped chunk
+     * @throws IllegalArgumentException if the chunk size is not valid
+     */
+    MappedFile(String path, long chunkSize) throws IOException {
+
+        //A chunk can't be empty and a single mapping can't be larger than Integer.MAX_VALUE bytes
+        if(chunkSize <= 0 || chunkSize > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Invalid map chunk size: " + chunkSize + ", it must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.chunkSize = chunkSize;
+
+        //The mappings remain valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            size = channel.size();
+
+            chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+            for(int i = 0; i < chunks.length; i++){
+                long start = i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, size - start));
+            }
+        }
+    }
+
+    /**
+     * Get the size of the file.
+     * @return the size of the file in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Read a single byte.
+     * @param position Position of the byte in the file
+     * @return the byte read.
+     */
+    public byte getByte(long position) {
+        return chunks[(int) (position / chunkSize)].get((int) (position % chunkSize));
+    }
+
+    /**
+     * Read an int written in 4 bytes in big-endian order.
+     * @param position Position of the first byte in the file
+     * @return the int read.
+     */
+    public int getInt(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position / chunkSize)];
+        int index = (int) (position % chunkSize);
+
+        //Compared as long, since with a chunk of Integer.MAX_VALUE bytes the end of the value can overflow an int
+        if((long) index + Integer.BYTES <= chunk.limit()){
+            return chunk.getInt(index);
+        }
+        return (int) getSplit(position, Integer.BYTES);
+    }
+
+    /**
+     * Read a long written in 8 bytes in big-endian order.
+     * @param position Position of the first byte in the file
+     * @return the long read.
+     */
+    public long getLong(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position / chunkSize)];
+        int index = (int) (position % chunkSize);
+
+        if((long) index + Long.BYTES <= chunk.limit()){
+            return chunk.getLong(index);
+        }
+        return getSplit(position, Long.BYTES);
+    }
+
+    /**
+     * Copy the given number of bytes in an array.
+     * @param position Position of the first byte in the file
+     * @param destination Array in which the bytes are copied
+     * @param offset Position of the array from which the bytes are copied
+     * @param length Number of bytes to copy
+     */
+    public void read(long position, byte[] destination, int offset, int length) {
+        while(length > 0){
+            MappedByteBuffer chunk = chunks[(int) (position / chunkSize)];
+            int index = (int) (position % chunkSize);
+            int count = Math.min(length, chunk.limit() - index);
+
+            //The copy is done on a view of the chunk, so the position of the shared mapping is never changed
+            ByteBuffer view = chunk.duplicate();
+            ((Buffer) view).position(index);
+            view.get(destination, offset, count);
+
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Read a value whose bytes are split between two chunks, one byte at a time.
+     * @param position Position of the first byte in the file
+     * @param bytes Number of bytes of the value
+     * @return the value read.
+     */
+    private long getSplit(long position, int bytes) {
+        long value = 0;
+        for(int i = 0; i < bytes; i++){
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,236 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.io.BinaryReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * Cursor over a partial block produced by the SPIMI algorithm. The lexicon and the posting lists of a block are sorted
+ * by term and the merge consumes them in the same order, so the three files of the block are read sequentially through
+ * buffered readers, without seeking to the offsets written in the lexicon.
+ * The cursor can be limited to a range of terms: it starts from the first term of the range, found with a binary search
+ * on the fixed size entries of the lexicon block, and it ends before the first term after the range.
+ */
+class BlockCursor implements Closeable {
+
+    //Number of the block, starting from 1
+    private final int blockNumber;
+
+    //First term after the range of the cursor, null if the cursor reaches the end of the block
+    private final String lastTerm;
+
+    //Readers of the lexicon, docids and frequencies files of the block
+    private final BinaryReader lexiconReader;
+    private final BinaryReader docIdsReader;
+    private final BinaryReader frequenciesReader;
+
+    //Buffer used to read the term of a lexicon entry
+    private final byte[] termBytes = new byte[TermInfo.TERM_LENGTH];
+
+    //Lexicon entry of the current term, null if the end of the block is reached
+    private TermInfo termInfo;
+
+    //Last docid decoded from the posting list of the current term, the gaps are added to it
+    private long previousDocId;
+
+    /**
+     * Constructor of the class, it opens the files of the block and moves the cursor to the first term of the range.
+     * @param blockNumber Number of the block, starting from 1
+     * @param lexiconPath Path of the lexicon block file
+     * @param docIdsPath Path of the docids block file
+     * @param frequenciesPath Path of the frequencies block file
+     * @param firstTerm First term of the range, null to start from the first term of the block
+     * @param lastTerm First term after the range, null to read until the end of the block
+     * @param bufferSize Size in bytes of the read buffer of each file
+     */
+    BlockCursor(int blockNumber, String lexiconPath, String docIdsPath, String frequenciesPath, String firstTerm,
+                String lastTerm, int bufferSize) throws IOException {
+        this.blockNumber = blockNumber;
+        this.lastTerm = lastTerm;
+
+        //Offsets of the first term in the lexicon, docids and frequencies files, they're searched before opening the
+        // readers, so the cursor never keeps more than three files open
+        long[] offsets = firstTerm != null ? findFirstTerm(lexiconPath, firstTerm) : new long[3];
+
+        //If a file can't be opened, the readers already opened are closed
+        BinaryReader lexicon = null;
+        BinaryReader docIds = null;
+        try {
+            lexicon = new BinaryReader(lexiconPath, bufferSize);
+            docIds = new BinaryReader(docIdsPath, bufferSize);
+            frequenciesReader = new BinaryReader(frequenciesPath, bufferSize);
+        } catch (IOException e) {
+            if(lexicon != null){
+                lexicon.close();
+            }
+            if(docIds != null){
+                docIds.close();
+            }
+            throw e;
+        }
+        lexiconReader = lexicon;
+        docIdsReader = docIds;
+
+        lexiconReader.seek(offsets[0]);
+        docIdsReader.seek(offsets[1]);
+        frequenciesReader.seek(offsets[2]);
+
+        nextTerm();
+    }
+
+    /**
+     * Find the first term greater or equal to the given one, using a binary search on the entries of the lexicon
+     * block, that have a fixed length and are sorted by term.
+     * @param lexiconPath Path of the lexicon block file
+     * @param firstTerm Term to be searched
+     * @return the offsets of the entry found in the lexicon file and of its posting list in the docids and frequencies
+     * files. If all the terms are smaller, the offset in the lexicon file is its end.
+     */
+    private long[] findFirstTerm(String lexiconPath, String firstTerm) throws IOException {
+
+        long[] offsets = new long[3];
+
+        //Number of entries in the lexicon block
+        long entries = new File(lexiconPath).length() / TermInfo.BLOCK_TERM_INFO_LENGTH;
+
+        try (RandomAccessFile lexiconFile = new RandomAccessFile(lexiconPath, "r")) {
+
+            //Search the first entry with a term greater or equal to the given one
+            long low = 0;
+            long high = entries;
+            while(low < high){
+                long middle = (low + high) >>> 1;
+
+                lexiconFile.seek(middle * TermInfo.BLOCK_TERM_INFO_LENGTH);
+                lexiconFile.readFully(termBytes);
+
+                if(new String(termBytes, Charset.defaultCharset()).trim().compareTo(firstTerm) < 0){
+                    low = middle + 1;
+                }else{
+                    high = middle;
+                }
+            }
+
+            offsets[0] = low * TermInfo.BLOCK_TERM_INFO_LENGTH;
+
+            //Read the offsets of the posting lists of the entry found, if any
+            if(low < entries){
+                lexiconFile.seek(low * TermInfo.BLOCK_TERM_INFO_LENGTH + TermInfo.TERM_LENGTH);
+                offsets[1] = lexiconFile.readLong();
+                offsets[2] = lexiconFile.readLong();
+            }
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Move the cursor to the next term of the lexicon block. All the postings of the previous term must have been
+     * read, since the posting lists are read sequentially.
+     * @return false if the end of the block or of the range is reached
+     */
+    boolean nextTerm() throws IOException {
+
+        if(!lexiconReader.hasRemaining()){
+            termInfo = null;
+            return false;
+        }
+
+        //Read the first 48 bytes containing the term, then convert the bytes to a string and trim it
+        lexiconReader.readFully(termBytes);
+        String term = new String(termBytes, Charset.defaultCharset()).trim();
+
+        //Check if the end of the range is reached
+        if(lastTerm != null && term.compareTo(lastTerm) >= 0){
+            termInfo = null;
+            return false;
+        }
+
+        //Instantiate the TermInfo object reading the offsets, the posting list length and the lengths in bytes
+        termInfo = new TermInfo(
+                term,
+                lexiconReader.readLong(),
+                lexiconReader.readLong(),
+                lexiconReader.readInt(),
+                lexiconReader.readInt(),
+                lexiconReader.readInt());
+
+        previousDocId = 0;
+
+        return true;
+    }
+
+    /**
+     * Decode the next docid of the posting list of the current term. The docids are stored as Variable Byte encoded
+     * gaps, the first one is the gap from 0.
+     * @return the next docid
+     */
+    long nextDocId() throws IOException {
+        previousDocId += readVariableByte(docIdsReader);
+        return previousDocId;
+    }
+
+    /**
+     * Decode the next frequency of the posting list of the current term. The frequencies are stored as Variable Byte
+     * encoded numbers.
+     * @return the next frequency
+     */
+    int nextFrequency() throws IOException {
+        return (int) readVariableByte(frequenciesReader);
+    }
+
+    /**
+     * Decode the next Variable Byte encoded number of the given reader.
+     * @param reader Reader of the compressed numbers
+     * @return the decoded number
+     */
+    private static long readVariableByte(BinaryReader reader) throws IOException {
+
+        long number = 0;
+        int aByte;
+
+        //Accumulate the groups of 7 bits until the byte with the MSB equal to 1, that is the last of the code
+        do {
+            aByte = reader.readByte();
+            number = number * 128 + (aByte & 0x7F);
+        } while ((aByte & 0x80) == 0);
+
+        return number;
+    }
+
+    /**
+     * Get the lexicon entry of the current term.
+     * @return the lexicon entry, null if the end of the block is reached.
+     */
+    TermInfo getTermInfo() {
+        return termInfo;
+    }
+
+    /**
+     * Get the current term.
+     * @return the current term.
+     */
+    String getTerm() {
+        return termInfo.getTerm();
+    }
+
+    /**
+     * Get the number of the block.
+     * @return the number of the block, starting from 1.
+     */
+    int getBlockNumber() {
+        return blockNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lexiconReader.close();
+        docIdsReader.close();
+        frequenciesReader.close();
+    }
+}
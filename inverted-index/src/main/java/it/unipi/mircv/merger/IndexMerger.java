@@ -1,16 +1,25 @@
 package it.unipi.mircv.merger;
 
 import it.unipi.mircv.beans.*;
+import it.unipi.mircv.io.BinaryReader;
+import it.unipi.mircv.io.BinaryWriter;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.LinkedList;
-
-import static it.unipi.mircv.compressor.Compressor.*;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class IndexMerger {
@@ -21,15 +30,53 @@ public class IndexMerger {
     final static String INVERTED_INDEX_DOC_IDS_PATH = "Files/docids.txt";
     final static String INVERTED_INDEX_FREQUENCIES_PATH = "Files/frequencies.txt";
     final static String SKIP_BLOCKS_PATH = "Files/skipblocks.txt";
+    final static String RANGE_PATH = "inverted-index/src/main/resources/tmp/range";
+    final static String RUN_PATH = "inverted-index/src/main/resources/tmp/run";
     public static final double K1 = 1.5;
     public static final double B = 0.75;
 
+    //Number of threads used to merge the ranges of terms, it is also the number of ranges
+    static final int MERGE_THREADS = Integer.getInteger("mircv.mergeThreads", Runtime.getRuntime().availableProcessors());
+
+    //Memory in bytes for the read buffers of the blocks, shared by all the ranges
+    static final long MERGE_READ_BUFFERS_BUDGET = Long.getLong("mircv.mergeBufferBudget", Runtime.getRuntime().maxMemory() / 8);
+
+    //Minimum size in bytes of a read buffer
+    static final int MIN_READ_BUFFER_SIZE = 8 * 1024;
+
+    //Maximum number of blocks read at the same time by all the merges running in the process, each block keeps three
+    // files open, so it bounds the number of file descriptors used by the merge
+    static final int MAX_OPEN_BLOCKS = Math.max(2, Integer.getInteger("mircv.mergeFanIn", 64));
+
+    //Minimum number of blocks merged by a run of an intermediate pass, with a smaller share of the open blocks fewer
+    // runs are merged concurrently, to avoid too many passes
+    static final int MIN_FAN_IN = 8;
+
+    //Maximum number of blocks read by a single merge, if there are more blocks they're merged in runs by intermediate
+    // passes. The open blocks are divided among the merge threads
+    static final int MAX_FAN_IN = Math.max(Math.min(MIN_FAN_IN, MAX_OPEN_BLOCKS), MAX_OPEN_BLOCKS / Math.max(1, MERGE_THREADS));
+
+    //One lexicon entry every SAMPLING_INTERVAL is read from the blocks to split the term space
+    static final int SAMPLING_INTERVAL = 64;
+
+    //Positions of the offsets in a lexicon entry: term, docids offset, frequencies offset, idf, lengths in bytes of
+    // docids and frequencies, posting list length, skip blocks offset
+    static final int LEXICON_OFFSET_DOCIDS_POSITION = TermInfo.TERM_LENGTH;
+    static final int LEXICON_OFFSET_FREQUENCIES_POSITION = LEXICON_OFFSET_DOCIDS_POSITION + TermInfo.OFFSET_DOCIDS_LENGTH;
+    static final int LEXICON_OFFSET_SKIPBLOCKS_POSITION = LEXICON_OFFSET_FREQUENCIES_POSITION + TermInfo.OFFSET_FREQUENCIES_LENGTH
+            + TermInfo.IDF_LENGTH + TermInfo.BYTES_DOCID_LENGTH + TermInfo.BYTES_FREQUENCY_LENGTH + TermInfo.POSTING_LIST_LENGTH;
+
     /**
-     * This method merges the inverted index and the lexicon blocks into one single file.
-     * @param compress If true, the inverted index and the lexicon blocks will be compressed using VBE, otherwise
-     *                 they will be written without compression.
+     * This method merges the inverted index and the lexicon blocks into one single file. The term space is split in
+     * ranges with a similar number of postings, the ranges are merged concurrently in partial files that are then
+     * concatenated, correcting the offsets of the lexicon entries.
+     * @param compress If true, the inverted index and the lexicon blocks will be compressed using the given codec,
+     *                 otherwise they will be written without compression.
+     * @param codecName Name of the posting codec used to compress the posting lists, see PostingCodec.forName
+     * @param skipBlockSize Fixed number of postings of each skip block, 0 to use sqrt(n) postings for a posting list
+     *                      of length n
      */
-    public static void merge(boolean compress, boolean debug) {
+    public static void merge(boolean compress, String codecName, int skipBlockSize, boolean debug) {
 
         System.out.println("[MERGER] Merging lexicon blocks and inverted index blocks...");
 
@@ -39,456 +86,391 @@ public class IndexMerger {
         //Retrieve the blocks statistics
         Statistics statistics = readStatistics();
 
-        int NUMBER_OF_BLOCKS = statistics.getNumberOfBlocks();
-
-        //Arrays of random access files, for docIds, frequencies and lexicon blocks
-        RandomAccessFile[] randomAccessFileDocIds = new RandomAccessFile[NUMBER_OF_BLOCKS];
-        RandomAccessFile[] randomAccessFilesFrequencies = new RandomAccessFile[NUMBER_OF_BLOCKS];
-        RandomAccessFile[] randomAccessFilesLexicon = new RandomAccessFile[NUMBER_OF_BLOCKS];
-
-        //Files for the final result
-        RandomAccessFile lexiconFile;
-        RandomAccessFile docIdsFile;
-        RandomAccessFile frequenciesFile;
-        RandomAccessFile skipBlocksFile;
-        RandomAccessFile documentIndex;
-
-        //Accumulators to hold the current offset, starting from which the next list of postings will be written
-        long docIdsOffset = 0;
-        long frequenciesOffset = 0;
-        long skipBlocksOffset = 0;
-
-        //Array of the current offset reached in each lexicon block
-        int[] offsets = new int[NUMBER_OF_BLOCKS];
+        //Load the lengths of the documents in memory, they're used to compute the bm25 term upper bounds
+        int[] documentLengths = DocumentIndex.loadDocumentLengths();
 
-        //Array of boolean, each i-th entry is true, if the i-th block has reached the end of the lexicon block file
-        boolean[] endOfBlock = new boolean[NUMBER_OF_BLOCKS];
+        int NUMBER_OF_BLOCKS = statistics.getNumberOfBlocks();
 
-        //Set each offset equal to 0, the starting offset of each lexicon block
-        //Set each boolean equal to false, at the beginning no block has reached the end
-        for (int i = 0; i < NUMBER_OF_BLOCKS; i++) {
-            offsets[i] = 0;
-            endOfBlock[i] = false;
+        //Merge the blocks in larger runs until their number is within the maximum fan-in
+        while(NUMBER_OF_BLOCKS > MAX_FAN_IN) {
+            NUMBER_OF_BLOCKS = mergePass(NUMBER_OF_BLOCKS);
         }
 
-        //String to keep the min term among all the current terms in each lexicon block, it is used to determine the
-        // term of which the posting lists must be merged
-        String minTerm = null;
+        //Each range reads all the blocks, so the ranges merged concurrently are bounded by the open blocks
+        int threads = concurrentMerges(NUMBER_OF_BLOCKS);
 
-        //TermInfo to keep the term's information to be written in the lexicon file
-        TermInfo lexiconEntry;
+        //Terms that separate the ranges, the i-th range goes from the (i-1)-th split term included to the i-th excluded
+        ArrayList<String> splitTerms = computeSplitTerms(NUMBER_OF_BLOCKS, threads);
 
-        //Used to store the information of the current term entry for each lexicon block file
-        TermInfo[] curTerm = new TermInfo[NUMBER_OF_BLOCKS];
+        int numberOfRanges = splitTerms.size() + 1;
 
-        //Contains the list of all the blocks containing the current min term
-        LinkedList<Integer> blocksWithMinTerm = new LinkedList<>();
+        //Each range opens three readers for each block, the size of their buffers is bounded by the memory budget
+        int readBufferSize = (int) Math.max(MIN_READ_BUFFER_SIZE, Math.min(BinaryReader.BUFFER_SIZE,
+                MERGE_READ_BUFFERS_BUDGET / (3L * Math.max(1, NUMBER_OF_BLOCKS) * numberOfRanges)));
 
-        //Array to store the docIds and frequencies of the posting list of the current min term in the current block
-        ArrayList<Long> docIds = new ArrayList<>();
-        ArrayList<Integer> frequencies = new ArrayList<>();
+        System.out.println("[MERGER] Merging " + numberOfRanges + " term ranges using " + numberOfRanges + " threads");
 
-        //Array to store the information about the skipBlocks
-        ArrayList<SkipBlock> skipBlocks = new ArrayList<>();
-
-        //Arrays to store the compressed docIds and frequencies of the posting list of the current min term
-        byte[] docIdsCompressed;
-        byte[] frequenciesCompressed;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfRanges);
 
+        //Number of terms in the final lexicon
+        long numberOfTerms = 0;
 
         try {
-            //Create a stream for each random access files of each block, the stream is opened ad read only
-            for (int i = 0; i < NUMBER_OF_BLOCKS; i++) {
-                //noinspection resource
-                randomAccessFileDocIds[i] = new RandomAccessFile(INVERTED_INDEX_DOC_IDS_BLOCK_PATH+(i+1)+".txt", "r");
-                //noinspection resource
-                randomAccessFilesFrequencies[i] = new RandomAccessFile(INVERTED_INDEX_FREQUENCIES_BLOCK_PATH+(i+1)+".txt", "r");
-                //noinspection resource
-                randomAccessFilesLexicon[i] = new RandomAccessFile(LEXICON_BLOCK_PATH+(i+1)+".txt", "r");
-                if(debug){
-                    System.out.println("[DEBUG] Block " + i + " opened");
-                }
+            ArrayList<Future<Long>> results = new ArrayList<>();
+
+            for(int i = 0; i < numberOfRanges; i++) {
+
+                //With a single range the result is written directly in the final files
+                String[] outputPaths = numberOfRanges == 1 ? new String[]{LEXICON_PATH, INVERTED_INDEX_DOC_IDS_PATH, INVERTED_INDEX_FREQUENCIES_PATH, SKIP_BLOCKS_PATH}
+                                                           : getRangePaths(i + 1);
+
+                results.add(executor.submit(new RangeMerger(
+                        i + 1,
+                        i == 0 ? null : splitTerms.get(i - 1),
+                        i == numberOfRanges - 1 ? null : splitTerms.get(i),
+                        NUMBER_OF_BLOCKS,
+                        readBufferSize,
+                        compress,
+                        codecName,
+                        skipBlockSize,
+                        debug,
+                        statistics,
+                        documentLengths,
+                        outputPaths)));
             }
 
-            //Create a stream for the lexicon file, the docids file and the frequencies file, the stream is opened as write only
-            lexiconFile = new RandomAccessFile(LEXICON_PATH, "rw");
-            docIdsFile = new RandomAccessFile(INVERTED_INDEX_DOC_IDS_PATH, "rw");
-            frequenciesFile = new RandomAccessFile(INVERTED_INDEX_FREQUENCIES_PATH, "rw");
-            skipBlocksFile = new RandomAccessFile(SKIP_BLOCKS_PATH, "rw");
-            documentIndex = new RandomAccessFile(DocumentIndex.DOCUMENT_INDEX_PATH, "r");
-
+            //Wait for the completion of all the ranges
+            for(Future<Long> result : results) {
+                numberOfTerms += result.get();
+            }
 
-        } catch (FileNotFoundException e) {
-            System.err.println("[MERGER] File not found: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            System.err.println("[MERGER] Error during the merge of a range: " + e.getCause().getMessage());
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
 
-        //Read the first term of each lexicon block
-        for (int i = 0; i < curTerm.length; i++) {
-            curTerm[i] = readNextTermInfo(randomAccessFilesLexicon[i],offsets[i]);
-
-            if(curTerm[i] == null) {
-                endOfBlock[i] = true;
-            }
+        System.out.println("[MERGER] Merged " + numberOfTerms + " terms in " + (System.nanoTime() - begin)/1000000000+ "s");
 
-            //Update the offset to the offset of the next file to be read
-            offsets[i] += 68;
+        if(numberOfRanges > 1) {
+            System.out.println("[MERGER] Concatenating the ranges...");
+            concatenateRanges(numberOfRanges);
         }
 
-        long j = 1;
-        //Iterate over all the lexicon blocks, until the end of the lexicon block file is reached for each block
-        while(!endOfAllFiles(endOfBlock, NUMBER_OF_BLOCKS)) {
-            j++;
-            if(j%25000 == 0){
-                System.out.println("[MERGER] Processing time: " + (System.nanoTime() - begin)/1000000000+ "s. Processed " + j + " terms");
-            }
-
-            //System.out.println("[MERGER] Search the current min term in the lexicon block files");
-
-            //For each block read the next term
-            for(int i = 0; i < NUMBER_OF_BLOCKS; i++) {
-
-                //Avoid to read from the block if the end of the block is reached
-                if(endOfBlock[i]) {
-                    continue;
-                }
-
-                //If the current term is the lexicographically smaller than the min term, then update the min term.
-                if(minTerm == null || curTerm[i].getTerm().compareTo(minTerm) < 0) {
-
-                    //If we've found another min term, then update the min term.
-                    minTerm = curTerm[i].getTerm();
-
-                    //Clear the array of blocks with the min term.
-                    blocksWithMinTerm.clear();
-
-                    //Add the current block to the list of blocks with the min term.
-                    blocksWithMinTerm.add(i);
-
-                    //Else if the current term is equal to the min term, then add the current block to the list of blocks with the min term.
-                } else if (curTerm[i].getTerm().compareTo(minTerm) == 0) {
+        if(deleteBlocks(NUMBER_OF_BLOCKS)){
+            System.out.println("[MERGER] Blocks deleted successfully");
+        }
 
-                    //Add the current block to the list of blocks with the min term.
-                    blocksWithMinTerm.add(i);
-                }
-            }//At this point we have the current min term.
+        System.out.println("[MERGER] Total processing time: " + (System.nanoTime() - begin)/1000000000+ "s");
+        System.out.println("[MERGER] MERGING PROCESS COMPLETE");
+    }
 
-            //Check if we've reached the and of the merge.
-            if(endOfAllFiles(endOfBlock, NUMBER_OF_BLOCKS)) {
-                System.out.println("END OF ALL FILES");
-                break;
-            }
+    /**
+     * Intermediate pass of the merge: the blocks are divided in groups of MAX_FAN_IN consecutive blocks and each group
+     * is merged in a run having the format of a block. At the end of the pass the runs replace the blocks, the run of
+     * the i-th group becomes the i-th block, so the order of the docids between the blocks is kept.
+     * @param numberOfBlocks Number of blocks before the pass
+     * @return the number of blocks after the pass.
+     */
+    private static int mergePass(int numberOfBlocks) {
 
-            //System.out.println("----------- TERM: " + minTerm + " -----------");
-            //System.out.println(blocksWithMinTerm);
+        long begin = System.nanoTime();
 
-            //Merge the posting lists of the current min term in the blocks containing the term
-            for (Integer integer : blocksWithMinTerm) {
+        int numberOfGroups = (numberOfBlocks + MAX_FAN_IN - 1) / MAX_FAN_IN;
 
-                //Append the current term docIds to the docIds accumulator
-                docIds.addAll(PostingList.readPostingListDocIds(randomAccessFileDocIds[integer], curTerm[integer].getOffsetDocId(), curTerm[integer].getPostingListLength()));
+        System.out.println("[MERGER] Merging " + numberOfBlocks + " blocks in " + numberOfGroups + " runs");
 
-                //System.out.println("Current docIds: " + docIds);
+        //Each run reads at most MAX_FAN_IN blocks, the runs merged concurrently are bounded by the open blocks
+        int threads = Math.min(numberOfGroups, concurrentMerges(MAX_FAN_IN));
 
-                //Append the current term frequencies to the frequencies accumulator
-                frequencies.addAll(PostingList.readPostingListFrequencies(randomAccessFilesFrequencies[integer], curTerm[integer].getOffsetFrequency(), curTerm[integer].getPostingListLength()));
+        //Each run opens three readers for each block of its group
+        int readBufferSize = (int) Math.max(MIN_READ_BUFFER_SIZE, Math.min(BinaryReader.BUFFER_SIZE,
+                MERGE_READ_BUFFERS_BUDGET / (3L * MAX_FAN_IN * threads)));
 
-                //System.out.println("Current term frequencies: " + frequencies);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
 
-                //Read the lexicon entry from the current block and move the pointer of the file to the next term
-                curTerm[integer] = readNextTermInfo(randomAccessFilesLexicon[integer], offsets[integer]);
+        try {
+            ArrayList<Future<Long>> results = new ArrayList<>();
 
-                //Check if the end of the block is reached or a problem during the reading occurred
-                if(curTerm[integer] == null) {
-                    if(debug) {
-                        System.out.println("[DEBUG] Block " + integer + " has reached the end of the file");
-                    }
+            for(int i = 1; i <= numberOfGroups; i++) {
+                int firstBlock = (i - 1) * MAX_FAN_IN + 1;
+                int lastBlock = Math.min(i * MAX_FAN_IN, numberOfBlocks);
 
-                    endOfBlock[integer] = true;
-                    continue;
+                //A group with a single block is already a run
+                if(firstBlock < lastBlock) {
+                    results.add(executor.submit(new RunMerger(firstBlock, lastBlock, readBufferSize, getRunPaths(i))));
                 }
-
-                //Increment the offset of the current block to the starting offset of the next term
-                offsets[integer] +=
-                        TermInfo.TERM_LENGTH +
-                        TermInfo.OFFSET_DOCIDS_LENGTH +
-                        TermInfo.OFFSET_FREQUENCIES_LENGTH +
-                        TermInfo.POSTING_LIST_LENGTH;
-
             }
 
-            //Maximum term frequency
-            int maxFreq = 0;
-
-            //Maximum tf for bm25
-            double tf_maxScoreBm25 = 0;
-
-            if(compress){
+            for(Future<Long> result : results) {
+                result.get();
+            }
 
-                Tuple<Double, Double> maxscoreTuple = new Tuple<>(0.0, 0.0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            System.err.println("[MERGER] Error during the merge of a run: " + e.getCause().getMessage());
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
 
-                //Compress the list of docIds using VBE and create the list of skip blocks for the list of docids
-                docIdsCompressed = variableByteEncodeDocId(docIds, skipBlocks);
+        //Replace the blocks with the runs, the i-th run takes the place of the i-th block, that belongs to a previous
+        // group or to the same group, so it has already been removed
+        try {
+            for(int i = 1; i <= numberOfGroups; i++) {
+                int firstBlock = (i - 1) * MAX_FAN_IN + 1;
+                int lastBlock = Math.min(i * MAX_FAN_IN, numberOfBlocks);
 
-                //Compress the list of frequencies using VBE and update the frequencies information in the skip blocks
-                frequenciesCompressed = variableByteEncodeFreq(frequencies, skipBlocks, docIds, maxscoreTuple, documentIndex, statistics);
+                String[] sourcePaths;
 
-                //Write the docIds and frequencies of the current term in the respective files
-                try {
-                    docIdsFile.write(docIdsCompressed);
-                    frequenciesFile.write(frequenciesCompressed);
-                } catch (IOException e) {
-                    System.err.println("[MERGER] File not found: " + e.getMessage());
-                    throw new RuntimeException(e);
+                if(firstBlock < lastBlock) {
+                    for(int block = firstBlock; block <= lastBlock; block++) {
+                        for(String path : getBlockPaths(block)) {
+                            Files.delete(Paths.get(path));
+                        }
+                    }
+                    sourcePaths = getRunPaths(i);
+                } else {
+                    sourcePaths = getBlockPaths(firstBlock);
                 }
 
-                //Compute idf
-                double idf = Math.log(statistics.getNumberOfDocuments()/ (double)docIds.size())/Math.log(2);
-
-                //Compute the tfidf term upper bound
-                int tfidfTermUpperBound = (int) Math.ceil((1 + Math.log(maxscoreTuple.getFirst()) / Math.log(2))*idf);
-
-                //Compute the bm25 term upper bound
-                int bm25TermUpperBound = (int) Math.ceil(maxscoreTuple.getSecond()*idf);
-
-
-                lexiconEntry = new TermInfo(
-                        minTerm,                     //Term
-                        docIdsOffset,                //offset in the docids file in which the docids list starts
-                        frequenciesOffset,           //offset in the frequencies file in which the frequencies list starts
-                        idf,                         //idf
-                        docIdsCompressed.length,     //length in bytes of the compressed docids list
-                        frequenciesCompressed.length,//length in bytes of the compressed frequencies list
-                        docIds.size(),               //Length of the posting list of the current term
-                        skipBlocksOffset,            //Offset of the SkipBlocks in the SkipBlocks file
-                        skipBlocks.size(),           //number of SkipBlocks
-                        tfidfTermUpperBound,         //term upper bound for the tfidf
-                        bm25TermUpperBound           //term upper bound for the bm25
-                        );
-
-                //For DEBUG
-                if(debug && j%25000 == 0) {
-                    System.out.println("[DEBUG] Current lexicon entry: " + lexiconEntry);
-                    System.out.println("[DEBUG] Number of skipBlocks created: " + skipBlocks.size());
+                String[] blockPaths = getBlockPaths(i);
+                for(int j = 0; j < blockPaths.length; j++) {
+                    if(!sourcePaths[j].equals(blockPaths[j])) {
+                        Files.move(Paths.get(sourcePaths[j]), Paths.get(blockPaths[j]), StandardCopyOption.REPLACE_EXISTING);
+                    }
                 }
+            }
+        } catch (IOException e) {
+            System.err.println("[MERGER] Error replacing the blocks with the runs: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
 
-                lexiconEntry.writeToFile(lexiconFile, lexiconEntry);
-
-                docIdsOffset += docIdsCompressed.length;
-                frequenciesOffset += frequenciesCompressed.length;
-
-
-            }else {//No compression
+        System.out.println("[MERGER] Runs merged in " + (System.nanoTime() - begin)/1000000000+ "s");
 
-                //Write the docIds and frequencies of the current term in the respective files
-                try {
+        return numberOfGroups;
+    }
 
-                    //Dimension of each skip block
-                    int skipBlocksLength = (int) Math.floor(Math.sqrt(docIds.size()));
+    /**
+     * Compute the number of merges that can run at the same time, each one reading the given number of blocks, without
+     * having more than MAX_OPEN_BLOCKS blocks open in the process.
+     * @param blocksPerMerge Number of blocks read by each merge
+     * @return the number of concurrent merges, between 1 and MERGE_THREADS.
+     */
+    private static int concurrentMerges(int blocksPerMerge) {
+        return Math.max(1, Math.min(MERGE_THREADS, MAX_OPEN_BLOCKS / Math.max(1, blocksPerMerge)));
+    }
 
-                    //Number of postings
-                    int skipBlocksElements = 0;
+    /**
+     * Get the paths of the lexicon, docids and frequencies files of the given block.
+     * @param block Number of the block, starting from 1
+     * @return the paths of the files of the block.
+     */
+    private static String[] getBlockPaths(int block) {
+        return new String[]{
+                LEXICON_BLOCK_PATH + block + ".txt",
+                INVERTED_INDEX_DOC_IDS_BLOCK_PATH + block + ".txt",
+                INVERTED_INDEX_FREQUENCIES_BLOCK_PATH + block + ".txt"};
+    }
 
-                    //To store the bm25 score for the current doc id
-                    double tf_currentBm25;
+    /**
+     * Get the paths of the lexicon, docids and frequencies files of the given run of an intermediate pass.
+     * @param run Number of the run, starting from 1
+     * @return the paths of the files of the run.
+     */
+    private static String[] getRunPaths(int run) {
+        return new String[]{
+                RUN_PATH + run + "Lexicon.txt",
+                RUN_PATH + run + "DocIds.txt",
+                RUN_PATH + run + "Frequencies.txt"};
+    }
 
-                    //Write the docids and frequencies in their respective files and create the skip blocks
-                    for(int i=0; i < docIds.size(); i++) {
+    /**
+     * Split the term space in ranges with about the same amount of postings. Only one lexicon entry every
+     * SAMPLING_INTERVAL entries is read from each lexicon block: the size of the postings between two samples of the
+     * same block is the difference between their docids offsets.
+     * @param numberOfBlocks Number of partial blocks
+     * @param numberOfRanges Maximum number of ranges
+     * @return the terms that separate the ranges, in increasing order.
+     */
+    private static ArrayList<String> computeSplitTerms(int numberOfBlocks, int numberOfRanges) {
 
-                        //Retrieve the maximum to compute the TFIDF term upper bound
-                        if(frequencies.get(i) > maxFreq){
-                            maxFreq = frequencies.get(i);
-                        }
+        ArrayList<String> splitTerms = new ArrayList<>();
 
-                        //Compute the bm25 scoring for the current document
-                        tf_currentBm25 = frequencies.get(i)/ (K1 * ((1-B) + B * ( (double) DocumentIndexEntry.getDocLenFromDisk(documentIndex, docIds.get(i)) / statistics.getAvdl()) + frequencies.get(i)));
+        if(numberOfRanges <= 1) {
+            return splitTerms;
+        }
 
-                        if(tf_currentBm25 > tf_maxScoreBm25){
-                            tf_maxScoreBm25 = tf_currentBm25;
-                        }
+        //Terms sampled and the amount of postings, in bytes, from each sampled term to the next sample of its block
+        ArrayList<Tuple<String, Long>> samples = new ArrayList<>();
 
+        //Total amount of postings
+        long totalSize = 0;
 
-                        //Write the docIds as a long to the end of the docIds file
-                        docIdsFile.writeLong(docIds.get(i));
+        byte[] termBytes = new byte[TermInfo.TERM_LENGTH];
 
-                        //Write the frequencies as an integer to the end of the frequencies file
-                        frequenciesFile.writeInt(frequencies.get(i));
+        for(int i = 1; i <= numberOfBlocks; i++) {
 
-                        //If we're at a skip position, we create a new skip block
-                        if(((i+1)%skipBlocksLength == 0) || ((i + 1) == docIds.size())){
+            try (RandomAccessFile lexiconBlock = new RandomAccessFile(LEXICON_BLOCK_PATH + i + ".txt", "r")) {
 
-                            //if the size of the skip block is less than skipBlocksLength then used the reminder,
-                            // to get the actual dimension of the skip block, since if we're at the end we can have less
-                            // than skipBlockLength postings
-                            // Since we don't have compression the lengths of docids and frequencies skip blocks are the same
-                            int currentSkipBlockSize = ((i + 1) % skipBlocksLength == 0) ? skipBlocksLength : ((i+1) % skipBlocksLength);
+                long entries = lexiconBlock.length() / TermInfo.BLOCK_TERM_INFO_LENGTH;
+                long docIdsLength = new File(INVERTED_INDEX_DOC_IDS_BLOCK_PATH + i + ".txt").length();
 
-                            //Creation of the skip block
-                            skipBlocks.add(new SkipBlock(
-                                    (long) skipBlocksElements *Long.BYTES,
-                                    currentSkipBlockSize,
-                                    (long) skipBlocksElements *Integer.BYTES,
-                                    currentSkipBlockSize,
-                                    docIds.get(i)
-                            ));
+                //Term and docids offset of the previous sample of the block
+                String previousTerm = null;
+                long previousOffset = 0;
 
-                            //Increment the number of elements seen until now, otherwise we're not able to obtain the first offset
-                            // equal to 0
-                            skipBlocksElements += currentSkipBlockSize;
-                        }
+                for(long entry = 0; entry < entries; entry += SAMPLING_INTERVAL) {
+                    lexiconBlock.seek(entry * TermInfo.BLOCK_TERM_INFO_LENGTH);
+                    lexiconBlock.readFully(termBytes);
+                    long offset = lexiconBlock.readLong();
 
+                    if(previousTerm != null) {
+                        samples.add(new Tuple<>(previousTerm, offset - previousOffset));
                     }
 
-
-                } catch (IOException e) {
-                    System.err.println("[MERGER] File not found: " + e.getMessage());
-                    throw new RuntimeException(e);
+                    previousTerm = new String(termBytes, Charset.defaultCharset()).trim();
+                    previousOffset = offset;
                 }
 
-                //Compute idf
-                double idf = Math.log(statistics.getNumberOfDocuments()/ (double)docIds.size())/Math.log(2);
-
-                //Compute the tfidf term upper bound
-                int tfidfTermUpperBound = (int) Math.ceil((1 + Math.log(maxFreq) / Math.log(2))*idf);
-
-                //Compute the bm25 term upper bound
-                int bm25TermUpperBound = (int) Math.ceil(tf_maxScoreBm25*idf);
-
-
-                //Instantiate a new TermInfo object with the current term information, here we use the information in
-                //the docids and frequencies objects
-                lexiconEntry = new TermInfo(
-                        minTerm,                     //Term
-                        docIdsOffset,                //offset in the docids file in which the docids list starts
-                        frequenciesOffset,           //offset in the frequencies file in which the frequencies list starts
-                        idf,                         //idf of the term for future scoring
-                        docIds.size(),               //length in number of long in the docids list
-                        frequencies.size(),          //length number of integers in the frequencies list
-                        docIds.size(),               //Length of the posting list of the current term
-                        skipBlocksOffset,            //Offset of the SkipBlocks in the SkipBlocks file
-                        skipBlocks.size(),           //number of SkipBlocks
-                        tfidfTermUpperBound,         //term upper bound for the tfidf
-                        bm25TermUpperBound           //term upper bound for the bm25
-                );
-
-                //For DEBUG
-                if(debug && j%25000 == 0) {
-                    System.out.println("[DEBUG] Current lexicon entry: " + lexiconEntry);
-                    System.out.println("[DEBUG] Number of skipBlocks created: " + skipBlocks.size());
+                //The last sample goes until the end of the block
+                if(previousTerm != null) {
+                    samples.add(new Tuple<>(previousTerm, docIdsLength - previousOffset));
                 }
 
-                lexiconEntry.writeToFile(lexiconFile, lexiconEntry);
-
-                docIdsOffset += 8L*docIds.size();
-                frequenciesOffset += 4L*frequencies.size();
+                totalSize += docIdsLength;
 
-
-            }
-
-            for(SkipBlock s : skipBlocks){
-                s.writeToFile(skipBlocksFile);
-                skipBlocksOffset += SkipBlock.SKIP_BLOCK_LENGTH;
+            } catch (IOException e) {
+                System.err.println("[MERGER] Error sampling the lexicon block " + i + ": " + e.getMessage());
+                throw new RuntimeException(e);
             }
-
-            //Clear the accumulators for the next iteration
-            docIds.clear();
-            frequencies.clear();
-            skipBlocks.clear();
-            minTerm = null; //Otherwise it will be always the first min term found at the beginning of the merge
-            blocksWithMinTerm.clear(); //Clear the list of blocks with the min term
         }
 
-        System.out.println("[MERGER] Closing the streams of the files. Analyzed " + j + " terms");
+        samples.sort(Comparator.comparing(Tuple::getFirst));
 
-        try {
-            //Close the streams of the files
-            for (int i = 0; i < NUMBER_OF_BLOCKS; i++) {
-                randomAccessFileDocIds[i].close();
-                randomAccessFilesFrequencies[i].close();
-                randomAccessFilesLexicon[i].close();
-            }
+        //Amount of postings of the samples before the current one
+        long accumulated = 0;
 
-            lexiconFile.close();
-            docIdsFile.close();
-            frequenciesFile.close();
-
-        } catch (RuntimeException | IOException e) {
-            System.err.println("[MERGER] File not found: " + e.getMessage());
-            throw new RuntimeException(e);
-        }
+        //A new range starts from the first sample after each multiple of the size of a range
+        for(Tuple<String, Long> sample : samples) {
+            if(accumulated >= totalSize * (splitTerms.size() + 1) / numberOfRanges
+                    && (splitTerms.isEmpty() || sample.getFirst().compareTo(splitTerms.get(splitTerms.size() - 1)) > 0)
+                    && accumulated > 0) {
+                splitTerms.add(sample.getFirst());
 
-        if(deleteBlocks(NUMBER_OF_BLOCKS)){
-            System.out.println("[MERGER] Blocks deleted successfully");
+                if(splitTerms.size() == numberOfRanges - 1) {
+                    break;
+                }
+            }
+            accumulated += sample.getSecond();
         }
 
-        System.out.println("[MERGER] Total processing time: " + (System.nanoTime() - begin)/1000000000+ "s");
-        System.out.println("[MERGER] MERGING PROCESS COMPLETE");
+        return splitTerms;
     }
 
-
     /**
-     * Reads the next lexicon entry from the given lexicon block file, starting from offset it will read the first 60
-     * bytes, then if resetOffset is true, it will reset the offset to the value present ate the beginning, otherwise it
-     * will keep the cursor as it is after the read of the entry.
-     * @param randomAccessFileLexicon RandomAccessFile of the lexicon block file
-     * @param offset offset starting from where to read the lexicon entry
+     * Concatenate the files of the ranges in the final files. The docids, frequencies and skip blocks are copied as
+     * they are, since the offsets of the skip blocks are relative to their posting list, while the offsets in the
+     * lexicon entries are incremented by the size of the files of the previous ranges.
+     * @param numberOfRanges Number of ranges
      */
-    public static TermInfo readNextTermInfo(RandomAccessFile randomAccessFileLexicon, int offset) {
+    private static void concatenateRanges(int numberOfRanges) {
 
-        //Array of bytes in which put the term
-        byte[] termBytes = new byte[TermInfo.TERM_LENGTH];
+        //Sizes of the files of the previous ranges
+        long docIdsOffset = 0;
+        long frequenciesOffset = 0;
+        long skipBlocksOffset = 0;
 
-        //String containing the term
-        String term;
+        byte[] entry = new byte[TermInfo.TERM_INFO_LENGTH];
+        ByteBuffer entryBuffer = ByteBuffer.wrap(entry);
 
-        //TermInfo containing the term information to be returned
-        TermInfo termInfo;
+        try (BinaryWriter lexiconFile = new BinaryWriter(LEXICON_PATH);
+             FileChannel docIdsFile = openForWriting(INVERTED_INDEX_DOC_IDS_PATH);
+             FileChannel frequenciesFile = openForWriting(INVERTED_INDEX_FREQUENCIES_PATH);
+             FileChannel skipBlocksFile = openForWriting(SKIP_BLOCKS_PATH)) {
 
-        try {
-            //Set the file pointer to the start of the lexicon entry
-            randomAccessFileLexicon.seek(offset);
+            for(int i = 1; i <= numberOfRanges; i++) {
 
-            //Read the first 48 containing the term
-            randomAccessFileLexicon.readFully(termBytes, 0, TermInfo.TERM_LENGTH);
+                String[] rangePaths = getRangePaths(i);
 
-            //Convert the bytes to a string and trim it
-            term = new String(termBytes, Charset.defaultCharset()).trim();
+                //Copy the lexicon entries of the range, correcting their offsets
+                try (BinaryReader rangeLexicon = new BinaryReader(rangePaths[0])) {
+                    while(rangeLexicon.hasRemaining()) {
+                        rangeLexicon.readFully(entry);
+                        entryBuffer.putLong(LEXICON_OFFSET_DOCIDS_POSITION, entryBuffer.getLong(LEXICON_OFFSET_DOCIDS_POSITION) + docIdsOffset);
+                        entryBuffer.putLong(LEXICON_OFFSET_FREQUENCIES_POSITION, entryBuffer.getLong(LEXICON_OFFSET_FREQUENCIES_POSITION) + frequenciesOffset);
+                        entryBuffer.putLong(LEXICON_OFFSET_SKIPBLOCKS_POSITION, entryBuffer.getLong(LEXICON_OFFSET_SKIPBLOCKS_POSITION) + skipBlocksOffset);
+                        lexiconFile.write(entry);
+                    }
+                }
 
-            //Instantiate the TermInfo object reading the next 3 integers from the file
-            termInfo = new TermInfo(term, randomAccessFileLexicon.readLong(), randomAccessFileLexicon.readLong(), randomAccessFileLexicon.readInt());
+                docIdsOffset += appendFile(rangePaths[1], docIdsFile);
+                frequenciesOffset += appendFile(rangePaths[2], frequenciesFile);
+                skipBlocksOffset += appendFile(rangePaths[3], skipBlocksFile);
 
-            return termInfo;
+                for(String path : rangePaths) {
+                    if(!new File(path).delete()) {
+                        System.err.println("[MERGER] Error deleting the file " + path);
+                    }
+                }
+            }
 
         } catch (IOException e) {
-            //System.err.println("[ReadNextTermInfo] EOF reached while reading the next lexicon entry");
-            return null;
+            System.err.println("[MERGER] Error concatenating the ranges: " + e.getMessage());
+            throw new RuntimeException(e);
         }
     }
 
-
     /**
-     * Return a statistics object containing the information about the blocks
+     * Get the paths of the lexicon, docids, frequencies and skip blocks files of the given range.
+     * @param range Number of the range, starting from 1
+     * @return the paths of the files of the range.
      */
-    private static Statistics readStatistics(){
-        return new Statistics();
+    private static String[] getRangePaths(int range) {
+        return new String[]{
+                RANGE_PATH + range + "Lexicon.txt",
+                RANGE_PATH + range + "DocIds.txt",
+                RANGE_PATH + range + "Frequencies.txt",
+                RANGE_PATH + range + "SkipBlocks.txt"};
     }
 
     /**
-     * Check if all the files have reached the end of the file, and if so return true, otherwise return false
-     * @param endOfBlocks array of boolean indicating if the files have reached the end of the file
-     * @param numberOfBlocks number of blocks, it is the length of the array
-     * @return true if all the files have reached the end of the file, and if so return true, otherwise return false
+     * Open a file for writing, creating it or truncating it if it exists.
+     * @param path Path of the file
+     * @return the channel of the file.
      */
-    private static boolean endOfAllFiles(boolean[] endOfBlocks, int numberOfBlocks) {
+    private static FileChannel openForWriting(String path) throws IOException {
+        return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
 
-        //For each block check if it has reached the end of the file
-        for(int i = 0; i < numberOfBlocks; i++) {
-            if(!endOfBlocks[i])
-                //At least one file has not reached the end of the file
-                return false;
+    /**
+     * Append the content of the given file at the end of the given channel.
+     * @param path Path of the file to be copied
+     * @param output Channel in which the file is copied
+     * @return the number of bytes copied.
+     */
+    private static long appendFile(String path, FileChannel output) throws IOException {
+        try (FileChannel input = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = input.size();
+            long copied = 0;
+            while(copied < size) {
+                copied += input.transferTo(copied, size - copied, output);
+            }
+            return size;
         }
-        //All the files have reached the end of the file
-        return true;
+    }
+
+    /**
+     * Return a statistics object containing the information about the blocks
+     */
+    private static Statistics readStatistics(){
+        return new Statistics();
     }
 
     /**
@@ -0,0 +1,235 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.SkipBlock;
+import it.unipi.mircv.beans.Statistics;
+import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.compressor.PostingCodec;
+import it.unipi.mircv.io.BinaryWriter;
+
+import java.io.IOException;
+
+import static it.unipi.mircv.merger.IndexMerger.B;
+import static it.unipi.mircv.merger.IndexMerger.K1;
+
+/**
+ * Writes the merged posting lists in the final files one posting at a time, so a posting list is never kept in memory.
+ * The length of the posting list is known before its first posting, since it is the sum of the lengths in the blocks
+ * containing the term, then the size of the skip blocks is known in advance and each skip block is written as soon as
+ * its last posting is added. The maximum frequency and the maximum bm25 term frequency, used for the term upper bounds,
+ * are updated at each posting.
+ * With compression the postings of a skip block are kept until the skip block is complete, then they are encoded by
+ * the posting codec, so each skip block can be decoded independently.
+ * The skip blocks have sqrt(n) postings, or a fixed number of postings if a skip block size is given.
+ */
+class PostingListWriter {
+
+    //Writers of the final files
+    private final BinaryWriter docIdsFile;
+    private final BinaryWriter frequenciesFile;
+    private final BinaryWriter skipBlocksFile;
+
+    //Codec used to compress the docids and the frequencies, null if the compression is disabled
+    private final PostingCodec codec;
+
+    //Fixed number of postings of each skip block, 0 if the skip blocks have sqrt(n) postings
+    private final int skipBlockSize;
+
+    //Lengths of the documents, indexed by docid
+    private final int[] documentLengths;
+
+    //Statistics of the collection
+    private final Statistics statistics;
+
+    //Skip block reused to write all the skip blocks
+    private final SkipBlock skipBlock = new SkipBlock(0, 0, 0, 0, 0);
+
+    //Offsets in the files at which the current posting list starts
+    private long docIdsOffset;
+    private long frequenciesOffset;
+    private long skipBlocksOffset;
+
+    //Length of the current posting list and number of postings added until now
+    private int postingListLength;
+    private int postings;
+
+    //Number of postings in each skip block
+    private int skipBlocksLength;
+
+    //Number of skip blocks written for the current posting list
+    private int numberOfSkipBlocks;
+
+    //Offsets relative to the posting list at which the current skip block starts, in bytes if compressed
+    private long skipBlockDocIdsStart;
+    private long skipBlockFrequenciesStart;
+
+    //Postings of the current skip block, used only with compression
+    private long[] skipBlockDocIds = new long[0];
+    private int[] skipBlockFrequencies = new int[0];
+    private int skipBlockPostings;
+
+    //Array in which the skip blocks are encoded, used only with compression
+    private byte[] encoded = new byte[0];
+
+    //Maximum term frequency and maximum tf for bm25 of the current posting list
+    private int maxFreq;
+    private double tf_maxScoreBm25;
+
+    /**
+     * Constructor of the class.
+     * @param docIdsFile Writer of the docids file
+     * @param frequenciesFile Writer of the frequencies file
+     * @param skipBlocksFile Writer of the skip blocks file
+     * @param codec Codec used to compress the docids and the frequencies, null to disable the compression
+     * @param skipBlockSize Fixed number of postings of each skip block, 0 to use sqrt(n) postings
+     * @param documentLengths Lengths of the documents, indexed by docid
+     * @param statistics Statistics of the collection
+     */
+    PostingListWriter(BinaryWriter docIdsFile, BinaryWriter frequenciesFile, BinaryWriter skipBlocksFile,
+                      PostingCodec codec, int skipBlockSize, int[] documentLengths, Statistics statistics) {
+        this.docIdsFile = docIdsFile;
+        this.frequenciesFile = frequenciesFile;
+        this.skipBlocksFile = skipBlocksFile;
+        this.codec = codec;
+        this.skipBlockSize = skipBlockSize;
+        this.documentLengths = documentLengths;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Start a new posting list.
+     * @param postingListLength Number of postings of the posting list
+     */
+    void startPostingList(int postingListLength) {
+        this.postingListLength = postingListLength;
+        postings = 0;
+
+        //Dimension of each skip block
+        skipBlocksLength = SkipBlock.postingsPerSkipBlock(postingListLength, skipBlockSize);
+        numberOfSkipBlocks = 0;
+
+        docIdsOffset = docIdsFile.getPosition();
+        frequenciesOffset = frequenciesFile.getPosition();
+        skipBlocksOffset = skipBlocksFile.getPosition();
+
+        skipBlockDocIdsStart = 0;
+        skipBlockFrequenciesStart = 0;
+
+        skipBlockPostings = 0;
+        if(codec != null && skipBlockDocIds.length < skipBlocksLength){
+            skipBlockDocIds = new long[skipBlocksLength];
+            skipBlockFrequencies = new int[skipBlocksLength];
+            encoded = new byte[codec.maxEncodedLength(skipBlocksLength)];
+        }
+
+        maxFreq = 0;
+        tf_maxScoreBm25 = 0;
+    }
+
+    /**
+     * Append a posting to the current posting list, the postings must be added in increasing order of docid.
+     * @param docId Docid of the posting
+     * @param frequency Frequency of the term in the document
+     */
+    void addPosting(long docId, int frequency) throws IOException {
+
+        //Retrieve the maximum to compute the TFIDF term upper bound
+        if(frequency > maxFreq){
+            maxFreq = frequency;
+        }
+
+        //Compute the bm25 scoring for the current document
+        double tf_currentBm25 = frequency/ (K1 * ((1-B) + B * ( (double) documentLengths[(int) docId] / statistics.getAvdl()) + frequency));
+
+        if(tf_currentBm25 > tf_maxScoreBm25){
+            tf_maxScoreBm25 = tf_currentBm25;
+        }
+
+        if(codec != null){
+            skipBlockDocIds[skipBlockPostings] = docId;
+            skipBlockFrequencies[skipBlockPostings] = frequency;
+            skipBlockPostings++;
+        }else{
+            docIdsFile.writeLong(docId);
+            frequenciesFile.writeInt(frequency);
+        }
+
+        postings++;
+
+        //If we're at a skip position, the skip block is complete and it is written
+        if(postings % skipBlocksLength == 0 || postings == postingListLength){
+            writeSkipBlock(docId);
+        }
+    }
+
+    /**
+     * Write the skip block ending with the current posting, the last docid added is the maximum of the skip block.
+     * @param maxDocId Last docid added
+     */
+    private void writeSkipBlock(long maxDocId) throws IOException {
+
+        //Offsets relative to the posting list at which the next skip block starts, in bytes if compressed or in
+        // number of postings otherwise
+        long skipBlockDocIdsEnd;
+        long skipBlockFrequenciesEnd;
+
+        if(codec != null){
+
+            //Encode the postings of the skip block
+            docIdsFile.write(encoded, 0, codec.encodeDocIds(skipBlockDocIds, skipBlockPostings, encoded, 0));
+            frequenciesFile.write(encoded, 0, codec.encodeFrequencies(skipBlockFrequencies, skipBlockPostings, encoded, 0));
+            skipBlockPostings = 0;
+
+            skipBlockDocIdsEnd = docIdsFile.getPosition() - docIdsOffset;
+            skipBlockFrequenciesEnd = frequenciesFile.getPosition() - frequenciesOffset;
+
+            skipBlock.setDocIdInfo(skipBlockDocIdsStart, (int) (skipBlockDocIdsEnd - skipBlockDocIdsStart), maxDocId);
+            skipBlock.setFreqInfo(skipBlockFrequenciesStart, (int) (skipBlockFrequenciesEnd - skipBlockFrequenciesStart));
+        }else{
+            skipBlockDocIdsEnd = postings;
+            skipBlockFrequenciesEnd = postings;
+
+            //Since we don't have compression the lengths of docids and frequencies skip blocks are the same, while the
+            // offsets are in bytes
+            int currentSkipBlockSize = (int) (skipBlockDocIdsEnd - skipBlockDocIdsStart);
+            skipBlock.setDocIdInfo(skipBlockDocIdsStart*Long.BYTES, currentSkipBlockSize, maxDocId);
+            skipBlock.setFreqInfo(skipBlockFrequenciesStart*Integer.BYTES, currentSkipBlockSize);
+        }
+
+        skipBlock.writeToFile(skipBlocksFile);
+        numberOfSkipBlocks++;
+
+        skipBlockDocIdsStart = skipBlockDocIdsEnd;
+        skipBlockFrequenciesStart = skipBlockFrequenciesEnd;
+    }
+
+    /**
+     * Complete the current posting list, computing the information of its lexicon entry.
+     * @param term Term of the posting list
+     * @return the lexicon entry of the term, with the offsets in the files of the writer.
+     */
+    TermInfo endPostingList(String term) {
+
+        //Compute idf
+        double idf = Math.log(statistics.getNumberOfDocuments()/ (double)postingListLength)/Math.log(2);
+
+        //Compute the tfidf term upper bound
+        int tfidfTermUpperBound = (int) Math.ceil((1 + Math.log(maxFreq) / Math.log(2))*idf);
+
+        //Compute the bm25 term upper bound
+        int bm25TermUpperBound = (int) Math.ceil(tf_maxScoreBm25*idf);
+
+        return new TermInfo(
+                term,                        //Term
+                docIdsOffset,                //offset in the docids file in which the docids list starts
+                frequenciesOffset,           //offset in the frequencies file in which the frequencies list starts
+                idf,                         //idf
+                codec != null ? (int) (docIdsFile.getPosition() - docIdsOffset) : postingListLength,               //length in bytes of the compressed docids list, or number of docids
+                codec != null ? (int) (frequenciesFile.getPosition() - frequenciesOffset) : postingListLength,      //length in bytes of the compressed frequencies list, or number of frequencies
+                postingListLength,           //Length of the posting list of the current term
+                skipBlocksOffset,            //Offset of the SkipBlocks in the SkipBlocks file
+                numberOfSkipBlocks,          //number of SkipBlocks
+                tfidfTermUpperBound,         //term upper bound for the tfidf
+                bm25TermUpperBound           //term upper bound for the bm25
+        );
+    }
+}
@@ -0,0 +1,240 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.Statistics;
+import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.compressor.PostingCodec;
+import it.unipi.mircv.io.BinaryWriter;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Merges the terms of the partial blocks that belong to a range of the term space, writing the lexicon, docids,
+ * frequencies and skip blocks of the range in their own files. The offsets written in the lexicon are relative to the
+ * files of the range, while the offsets of the skip blocks are relative to the posting list of their term. The ranges
+ * are disjoint, so they can be merged concurrently.
+ */
+class RangeMerger implements Callable<Long> {
+
+    //Number of the range, starting from 1
+    private final int range;
+
+    //First term of the range, null if the range starts from the first term
+    private final String firstTerm;
+
+    //First term after the range, null if the range ends with the last term
+    private final String lastTerm;
+
+    //Number of partial blocks to be merged
+    private final int numberOfBlocks;
+
+    //Size in bytes of the read buffers of each block file
+    private final int readBufferSize;
+
+    //True if the posting lists must be compressed
+    private final boolean compress;
+
+    //Name of the codec used to compress the posting lists
+    private final String codecName;
+
+    //Fixed number of postings of each skip block, 0 if the skip blocks have sqrt(n) postings
+    private final int skipBlockSize;
+
+    private final boolean debug;
+
+    //Statistics of the collection
+    private final Statistics statistics;
+
+    //Lengths of the documents, indexed by docid
+    private final int[] documentLengths;
+
+    //Paths of the output files of the range
+    private final String lexiconPath;
+    private final String docIdsPath;
+    private final String frequenciesPath;
+    private final String skipBlocksPath;
+
+    /**
+     * Constructor of the class.
+     * @param range Number of the range, starting from 1
+     * @param firstTerm First term of the range, null if the range starts from the first term
+     * @param lastTerm First term after the range, null if the range ends with the last term
+     * @param numberOfBlocks Number of partial blocks to be merged
+     * @param readBufferSize Size in bytes of the read buffers of each block file
+     * @param compress True if the posting lists must be compressed
+     * @param codecName Name of the codec used to compress the posting lists
+     * @param skipBlockSize Fixed number of postings of each skip block, 0 to use sqrt(n) postings
+     * @param debug True to print the debug information
+     * @param statistics Statistics of the collection
+     * @param documentLengths Lengths of the documents, indexed by docid
+     * @param outputPaths Paths of the lexicon, docids, frequencies and skip blocks files of the range
+     */
+    RangeMerger(int range, String firstTerm, String lastTerm, int numberOfBlocks, int readBufferSize, boolean compress,
+                String codecName, int skipBlockSize, boolean debug, Statistics statistics, int[] documentLengths,
+                String[] outputPaths) {
+        this.range = range;
+        this.firstTerm = firstTerm;
+        this.lastTerm = lastTerm;
+        this.numberOfBlocks = numberOfBlocks;
+        this.readBufferSize = readBufferSize;
+        this.compress = compress;
+        this.codecName = codecName;
+        this.skipBlockSize = skipBlockSize;
+        this.debug = debug;
+        this.statistics = statistics;
+        this.documentLengths = documentLengths;
+        this.lexiconPath = outputPaths[0];
+        this.docIdsPath = outputPaths[1];
+        this.frequenciesPath = outputPaths[2];
+        this.skipBlocksPath = outputPaths[3];
+    }
+
+    /**
+     * Merge the terms of the range.
+     * @return the number of terms merged
+     */
+    @Override
+    public Long call() {
+
+        //Retrieve the time at the beginning of the computation
+        long begin = System.nanoTime();
+
+        //Array of cursors, each one reads sequentially the lexicon, docIds and frequencies of a block
+        BlockCursor[] blockCursors = new BlockCursor[numberOfBlocks];
+
+        //String to keep the min term among all the current terms in each lexicon block, it is used to determine the
+        // term of which the posting lists must be merged
+        String minTerm;
+
+        //TermInfo to keep the term's information to be written in the lexicon file
+        TermInfo lexiconEntry;
+
+        //Priority queue of the blocks that have not reached the end, ordered by their current term, so the min term is
+        // found in O(log(blocks)). The blocks with the same term are ordered by block number, in this way their posting
+        // lists are concatenated in increasing order of docid
+        PriorityQueue<BlockCursor> blocksQueue = new PriorityQueue<>(Math.max(1, numberOfBlocks), (block1, block2) -> {
+            int comparison = block1.getTerm().compareTo(block2.getTerm());
+            return comparison != 0 ? comparison : Integer.compare(block1.getBlockNumber(), block2.getBlockNumber());
+        });
+
+        //Contains the list of all the blocks containing the current min term
+        LinkedList<BlockCursor> blocksWithMinTerm = new LinkedList<>();
+
+
+        long j = 1;
+
+        //Create a buffered writer for the lexicon file, the docids file, the frequencies file and the skip blocks file,
+        // they're closed also if the merge fails and closing them flushes the content of their buffers
+        try (BinaryWriter lexiconFile = new BinaryWriter(lexiconPath);
+             BinaryWriter docIdsFile = new BinaryWriter(docIdsPath);
+             BinaryWriter frequenciesFile = new BinaryWriter(frequenciesPath);
+             BinaryWriter skipBlocksFile = new BinaryWriter(skipBlocksPath)) {
+
+            try {
+                //Create a cursor for each block, it opens the files of the block and moves to the first term of the range
+                for (int i = 0; i < numberOfBlocks; i++) {
+                    blockCursors[i] = new BlockCursor(
+                            i + 1,
+                            IndexMerger.LEXICON_BLOCK_PATH+(i+1)+".txt",
+                            IndexMerger.INVERTED_INDEX_DOC_IDS_BLOCK_PATH+(i+1)+".txt",
+                            IndexMerger.INVERTED_INDEX_FREQUENCIES_BLOCK_PATH+(i+1)+".txt",
+                            firstTerm,
+                            lastTerm,
+                            readBufferSize);
+
+                    //Insert the block in the queue only if it has terms in the range
+                    if(blockCursors[i].getTermInfo() != null) {
+                        blocksQueue.add(blockCursors[i]);
+                    }
+
+                    if(debug){
+                        System.out.println("[DEBUG] Block " + i + " opened for range " + range);
+                    }
+                }
+
+                //Writer of the posting lists and of their skip blocks
+                PostingListWriter postingListWriter = new PostingListWriter(docIdsFile, frequenciesFile, skipBlocksFile,
+                        compress ? PostingCodec.forLayout(codecName, skipBlockSize) : null, skipBlockSize,
+                        documentLengths, statistics);
+
+                //Iterate over all the lexicon blocks, until the end of the lexicon block file is reached for each block
+                while(!blocksQueue.isEmpty()) {
+                    j++;
+                    if(j%25000 == 0){
+                        System.out.println("[MERGER] Range " + range + " processing time: " + (System.nanoTime() - begin)/1000000000+ "s. Processed " + j + " terms");
+                    }
+
+                    //The min term is the current term of the block at the head of the queue
+                    minTerm = blocksQueue.peek().getTerm();
+
+                    //Length of the merged posting list, it is the sum of the lengths of the posting lists in the blocks
+                    int postingListLength = 0;
+
+                    //Remove from the queue all the blocks with the min term, they're extracted in increasing block number
+                    while(!blocksQueue.isEmpty() && blocksQueue.peek().getTerm().equals(minTerm)) {
+                        postingListLength += blocksQueue.peek().getTermInfo().getPostingListLength();
+                        blocksWithMinTerm.add(blocksQueue.poll());
+                    }
+
+                    //Merge the posting lists of the current min term in the blocks containing the term, the postings are
+                    // moved one at a time from the blocks to the final files
+                    postingListWriter.startPostingList(postingListLength);
+
+                    for (BlockCursor blockCursor : blocksWithMinTerm) {
+
+                        for(int i = 0; i < blockCursor.getTermInfo().getPostingListLength(); i++) {
+                            postingListWriter.addPosting(blockCursor.nextDocId(), blockCursor.nextFrequency());
+                        }
+
+                        //Read the next lexicon entry from the current block, check if the end of the block is reached
+                        if(!blockCursor.nextTerm()) {
+                            if(debug) {
+                                System.out.println("[DEBUG] Block " + blockCursor.getBlockNumber() + " has reached the end of the file");
+                            }
+
+                            continue;
+                        }
+
+                        //Insert again the block in the queue, ordered by its next term
+                        blocksQueue.add(blockCursor);
+
+                    }
+
+                    lexiconEntry = postingListWriter.endPostingList(minTerm);
+
+                    //For DEBUG
+                    if(debug && j%25000 == 0) {
+                        System.out.println("[DEBUG] Current lexicon entry: " + lexiconEntry);
+                        System.out.println("[DEBUG] Number of skipBlocks created: " + lexiconEntry.getNumberOfSkipBlocks());
+                    }
+
+                    lexiconEntry.writeToFile(lexiconFile, lexiconEntry);
+
+                    //Clear the list of blocks with the min term
+                    blocksWithMinTerm.clear();
+                }
+
+                if(debug) {
+                    System.out.println("[DEBUG] Range " + range + " closing the streams of the files. Analyzed " + j + " terms");
+                }
+
+            } finally {
+                //Close the streams of the blocks opened until now, also if the merge failed
+                for (BlockCursor blockCursor : blockCursors) {
+                    if(blockCursor != null) {
+                        blockCursor.close();
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("[MERGER] Error merging range " + range + ": " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        //The counter starts from 1
+        return j - 1;
+    }
+}
@@ -0,0 +1,154 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.io.BinaryWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+import static it.unipi.mircv.compressor.Compressor.variableByteEncodeNumber;
+
+/**
+ * Merges a group of consecutive partial blocks into a single run, used by the intermediate passes of the merge when
+ * there are more blocks than the maximum fan-in. The run has the same format of a partial block: a lexicon with the
+ * offsets and the lengths in bytes of the posting lists, the docids encoded as Variable Byte gaps and the frequencies
+ * encoded with Variable Byte. The blocks of the group are consecutive, so the docids of the run are still sorted.
+ */
+class RunMerger implements Callable<Long> {
+
+    //Number of the first and of the last block of the group, starting from 1
+    private final int firstBlock;
+    private final int lastBlock;
+
+    //Size in bytes of the read buffers of each block file
+    private final int readBufferSize;
+
+    //Paths of the output files of the run
+    private final String lexiconPath;
+    private final String docIdsPath;
+    private final String frequenciesPath;
+
+    /**
+     * Constructor of the class.
+     * @param firstBlock Number of the first block of the group, starting from 1
+     * @param lastBlock Number of the last block of the group, included
+     * @param readBufferSize Size in bytes of the read buffers of each block file
+     * @param outputPaths Paths of the lexicon, docids and frequencies files of the run
+     */
+    RunMerger(int firstBlock, int lastBlock, int readBufferSize, String[] outputPaths) {
+        this.firstBlock = firstBlock;
+        this.lastBlock = lastBlock;
+        this.readBufferSize = readBufferSize;
+        this.lexiconPath = outputPaths[0];
+        this.docIdsPath = outputPaths[1];
+        this.frequenciesPath = outputPaths[2];
+    }
+
+    /**
+     * Merge the blocks of the group.
+     * @return the number of terms of the run
+     */
+    @Override
+    public Long call() {
+
+        //Cursors of the blocks of the group
+        ArrayList<BlockCursor> blockCursors = new ArrayList<>();
+
+        //Blocks that have not reached the end, ordered by their current term and then by block number
+        PriorityQueue<BlockCursor> blocksQueue = new PriorityQueue<>(lastBlock - firstBlock + 1, (block1, block2) -> {
+            int comparison = block1.getTerm().compareTo(block2.getTerm());
+            return comparison != 0 ? comparison : Integer.compare(block1.getBlockNumber(), block2.getBlockNumber());
+        });
+
+        //Contains the list of all the blocks containing the current min term
+        LinkedList<BlockCursor> blocksWithMinTerm = new LinkedList<>();
+
+        //Lexicon entry of the run, reused for all the terms
+        TermInfo termInfo = new TermInfo();
+
+        long numberOfTerms = 0;
+
+        try (BinaryWriter lexiconFile = new BinaryWriter(lexiconPath);
+             BinaryWriter docIdsFile = new BinaryWriter(docIdsPath);
+             BinaryWriter frequenciesFile = new BinaryWriter(frequenciesPath)) {
+
+            try {
+                for (int i = firstBlock; i <= lastBlock; i++) {
+                    BlockCursor blockCursor = new BlockCursor(
+                            i,
+                            IndexMerger.LEXICON_BLOCK_PATH + i + ".txt",
+                            IndexMerger.INVERTED_INDEX_DOC_IDS_BLOCK_PATH + i + ".txt",
+                            IndexMerger.INVERTED_INDEX_FREQUENCIES_BLOCK_PATH + i + ".txt",
+                            null,
+                            null,
+                            readBufferSize);
+                    blockCursors.add(blockCursor);
+
+                    if (blockCursor.getTermInfo() != null) {
+                        blocksQueue.add(blockCursor);
+                    }
+                }
+
+                while (!blocksQueue.isEmpty()) {
+
+                    String minTerm = blocksQueue.peek().getTerm();
+
+                    //Remove from the queue all the blocks with the min term, they're extracted in increasing block number
+                    while (!blocksQueue.isEmpty() && blocksQueue.peek().getTerm().equals(minTerm)) {
+                        blocksWithMinTerm.add(blocksQueue.poll());
+                    }
+
+                    long docIdsOffset = docIdsFile.getPosition();
+                    long frequenciesOffset = frequenciesFile.getPosition();
+
+                    //Length of the merged posting list
+                    int postingListLength = 0;
+
+                    //Last docid written, the docids are written as gaps and the first one is the gap from 0
+                    long previousDocId = 0;
+
+                    //Concatenate the posting lists of the term in the blocks, moving one posting at a time
+                    for (BlockCursor blockCursor : blocksWithMinTerm) {
+                        for (int i = 0; i < blockCursor.getTermInfo().getPostingListLength(); i++) {
+                            long docId = blockCursor.nextDocId();
+                            variableByteEncodeNumber(docId - previousDocId, docIdsFile);
+                            previousDocId = docId;
+
+                            variableByteEncodeNumber(blockCursor.nextFrequency(), frequenciesFile);
+                        }
+                        postingListLength += blockCursor.getTermInfo().getPostingListLength();
+
+                        if (blockCursor.nextTerm()) {
+                            blocksQueue.add(blockCursor);
+                        }
+                    }
+
+                    termInfo.set(
+                            docIdsOffset,
+                            frequenciesOffset,
+                            postingListLength,
+                            (int) (docIdsFile.getPosition() - docIdsOffset),
+                            (int) (frequenciesFile.getPosition() - frequenciesOffset));
+                    termInfo.writeToFile(lexiconFile, minTerm, termInfo);
+
+                    numberOfTerms++;
+
+                    blocksWithMinTerm.clear();
+                }
+            } finally {
+                for (BlockCursor blockCursor : blockCursors) {
+                    blockCursor.close();
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("[MERGER] Error merging the blocks from " + firstBlock + " to " + lastBlock + ": " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        return numberOfTerms;
+    }
+}
@@ -0,0 +1,136 @@
+package it.unipi.mircv.parser;
+
+import it.unipi.mircv.beans.ParsedDocument;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+/**
+ * Staged pipeline that parses the lines of a collection using multiple threads:
+ *  - a reader thread reads the lines and groups them in batches, each batch is submitted to the parser workers;
+ *  - the parser workers process the documents of the batches concurrently;
+ *  - the consumer retrieves the parsed batches through nextBatch() in the same order of the collection.
+ * The pending batches are kept in a bounded queue, so the reader stops when the consumer falls behind.
+ */
+public class ParallelParser implements Closeable {
+
+    //Marker inserted in the queue after the last batch
+    private static final Future<ParsedDocument[]> END_OF_COLLECTION = CompletableFuture.completedFuture(null);
+
+    //Pool of threads executing the parsing of the batches
+    private final ExecutorService workers;
+
+    //Thread reading the lines of the collection
+    private final ExecutorService reader;
+
+    //Result of the reader, used to propagate its exceptions
+    private final Future<?> readerResult;
+
+    //Batches submitted to the workers, in the order of the collection
+    private final BlockingQueue<Future<ParsedDocument[]>> batches;
+
+    //True if the end of the collection was reached by the consumer
+    private boolean ended;
+
+    /**
+     * Constructor of the class, it starts the reader and the parser workers.
+     * @param bufferedReader Reader of the lines of the collection
+     * @param stopwordsRemovalAndStemming True to perform the stopwords removal and stemming
+     * @param threads Number of parser workers
+     * @param batchSize Number of lines in each batch
+     */
+    public ParallelParser(BufferedReader bufferedReader, boolean stopwordsRemovalAndStemming, int threads, int batchSize) {
+
+        workers = Executors.newFixedThreadPool(threads);
+        reader = Executors.newSingleThreadExecutor();
+
+        //Enough batches to keep all the workers busy while the consumer processes the current one
+        batches = new ArrayBlockingQueue<>(4 * threads);
+
+        readerResult = reader.submit(() -> {
+            try {
+                ArrayList<String> lines = new ArrayList<>(batchSize);
+                String line;
+
+                //Iterate over the lines
+                while ((line = bufferedReader.readLine()) != null) {
+                    lines.add(line);
+
+                    if (lines.size() == batchSize) {
+                        submit(lines, stopwordsRemovalAndStemming);
+                        lines = new ArrayList<>(batchSize);
+                    }
+                }
+
+                //Submit the last partial batch
+                if (!lines.isEmpty()) {
+                    submit(lines, stopwordsRemovalAndStemming);
+                }
+            } finally {
+                //Signal the end of the collection also in case of errors, so the consumer doesn't wait forever
+                batches.put(END_OF_COLLECTION);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Submit the parsing of a batch of lines to the workers and append its result to the queue of the batches,
+     * waiting if the queue is full.
+     * @param lines Lines of the batch
+     * @param stopwordsRemovalAndStemming True to perform the stopwords removal and stemming
+     */
+    private void submit(ArrayList<String> lines, boolean stopwordsRemovalAndStemming) throws InterruptedException {
+        batches.put(workers.submit(() -> {
+            ParsedDocument[] parsedDocuments = new ParsedDocument[lines.size()];
+            for (int i = 0; i < parsedDocuments.length; i++) {
+                parsedDocuments[i] = Parser.processDocument(lines.get(i), stopwordsRemovalAndStemming);
+            }
+            return parsedDocuments;
+        }));
+    }
+
+    /**
+     * Return the next batch of parsed documents, in the order of the collection. An entry is null if the parsing of the
+     * respective line failed.
+     * @return the next batch of parsed documents, null if the end of the collection is reached
+     */
+    public ParsedDocument[] nextBatch() {
+
+        if (ended) {
+            return null;
+        }
+
+        try {
+            Future<ParsedDocument[]> batch = batches.take();
+
+            if (batch == END_OF_COLLECTION) {
+                ended = true;
+
+                //Propagate the exceptions raised while reading the collection
+                readerResult.get();
+                return null;
+            }
+
+            return batch.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Stop the reader and the workers.
+     */
+    @Override
+    public void close() {
+        reader.shutdownNow();
+        workers.shutdownNow();
+    }
+}
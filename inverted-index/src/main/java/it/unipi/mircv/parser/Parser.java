@@ -1,25 +1,31 @@
 package it.unipi.mircv.parser;
 
 import it.unipi.mircv.beans.ParsedDocument;
-import opennlp.tools.stemmer.PorterStemmer;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.StringTokenizer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 public class Parser {
 
-    //List of strings containing the stopwords
-    static List<String> stopWords = loadStopWords();
+    //Set of strings containing the stopwords
+    static Set<String> stopWords = loadStopWords();
+
+    //Maximum number of words of which the stem is cached
+    static final int STEM_CACHE_SIZE = Integer.getInteger("mircv.stemCacheSize", 500000);
+
+    //Cache of the stems, shared by all the threads
+    private static final StemCache stemCache = new StemCache(STEM_CACHE_SIZE);
 
     //Path to the file containing the list of stopwords
     static final String STOPWORDS_FILE = "Resources/utility/stopwords-en.txt";
 
+    //Tokenizer of each thread, it keeps its buffers between the documents
+    private static final ThreadLocal<Tokenizer> TOKENIZER = ThreadLocal.withInitial(Tokenizer::new);
+
     /**
      * Parse the document tokenizing each document in the format: doc_id text_tokenized
      * @param line String containing a document of the collection in the format: [doc_id]\t[text]\n
@@ -29,29 +35,47 @@ public class Parser {
     public static ParsedDocument processDocument(String line, boolean stopwordsRemovalAndStemming){
         //Utility variables to keep the current docno and text
         String docno;
-        String text;
+        String[] splittedText;
 
-        //Divide the line using \t as delimiter, it'll split the docNo and the text
-        StringTokenizer stringTokenizer = new StringTokenizer(line, "\t");
+        //Divide the line using \t as delimiter, it'll split the docNo and the text. As done by a StringTokenizer the
+        // consecutive delimiters are skipped
+        int docnoStart = skipTabs(line, 0);
+
+        //The line is empty, or it was not possible to retrieve it
+        if(docnoStart == line.length()){
+            return null;
+        }
 
         //Retrieve the first token, that is the docno
-        if(stringTokenizer.hasMoreTokens()){
-            docno = stringTokenizer.nextToken();
-
-            //Retrieve the second token, that is the text and cast it to lower case
-            if(stringTokenizer.hasMoreTokens()){
-                text = stringTokenizer.nextToken().toLowerCase();
-            }else{
-                //The text is empty, or it was not possible to retrieve it
-                return null;
-            }
-        }else{
-            //The line is empty, or it was not possible to retrieve it
+        int docnoEnd = line.indexOf('\t', docnoStart);
+
+        //The text is empty, or it was not possible to retrieve it
+        if(docnoEnd == -1){
             return null;
         }
 
-        //Remove punctuation, then split when one or more whitespace characters occur
-        String[] splittedText = removePunctuation(text).split("\\s+");
+        docno = line.substring(docnoStart, docnoEnd);
+
+        //Retrieve the second token, that is the text
+        int textStart = skipTabs(line, docnoEnd);
+
+        //The text is empty, or it was not possible to retrieve it
+        if(textStart == line.length()){
+            return null;
+        }
+
+        int textEnd = line.indexOf('\t', textStart);
+        if(textEnd == -1){
+            textEnd = line.length();
+        }
+
+        if(Tokenizer.LOCALE_SENSITIVE){
+            //Cast the text to lower case, remove punctuation, then split when one or more whitespace characters occur
+            splittedText = removePunctuation(line.substring(textStart, textEnd).toLowerCase()).split("\\s+");
+        }else{
+            //Lower case the text, remove punctuation and split it in a single pass over the line
+            splittedText = TOKENIZER.get().tokenize(line, textStart, textEnd);
+        }
 
         if(stopwordsRemovalAndStemming) {
             //Remove stop words
@@ -67,6 +91,19 @@ public class Parser {
         
     }
 
+    /**
+     * Return the index of the first character of the line, starting from the given position, that is not a tab.
+     * @param line String containing a document of the collection
+     * @param from Index from which start the search
+     * @return Index of the first character that is not a tab, the length of the line if there is none
+     */
+    private static int skipTabs(String line, int from){
+        while(from < line.length() && line.charAt(from) == '\t'){
+            from++;
+        }
+        return from;
+    }
+
     /**
      * Remove the punctuation by replacing it with an empty string
      * @param text String containing a text
@@ -81,42 +118,52 @@ public class Parser {
     /**
      * Remove the given stopwords from the text
      * @param text String containing a text
-     * @param stopwords List of strings containing the stopwords
+     * @param stopwords Set of strings containing the stopwords
      * @return Text without the stopwords
      */
-    private static String[] removeStopWords(String[] text, List<String> stopwords){
-
-        //Using the streams is better, since the performance are x6 faster than the manual remove or regex removal
-        ArrayList<String> words = Stream.of(text)
-                .collect(Collectors.toCollection(ArrayList<String>::new));
-        words.removeAll(stopwords);
-        String[] terms = new String[words.size()];
-        return words.toArray(terms);
+    private static String[] removeStopWords(String[] text, Set<String> stopwords){
+
+        //Number of words kept
+        int length = 0;
+
+        //Compact in place the words that are not stopwords, each lookup in the set costs O(1)
+        for(String word : text){
+            if(!stopwords.contains(word)){
+                text[length++] = word;
+            }
+        }
+
+        return length == text.length ? text : Arrays.copyOf(text, length);
     }
 
     /**
-     * Apply the Porter Stemmer in order to stem each token in a text
+     * Apply the Porter Stemmer in order to stem each token in a text, the stems are retrieved from the stem cache
      * @param terms Array of String containing a tokenized text
      * @return Array of stems
      */
     private static String[] getStems(String[] terms){
 
-        //Instance of a porter stemmer
-        PorterStemmer porterStemmer = new PorterStemmer();
+        //Replace in place each token with its stem
+        for(int i = 0; i < terms.length; i++){
+            terms[i] = stemCache.stem(terms[i]);
+        }
+
+        return terms;
+    }
 
-        //Create an array list of stems by computing different phases from a stream of tokens:
-        //  The stream is obtained by splitting the text using the whitespace as delimiter;
-        //  It's used a map stage where each word is stemmed
-        //  The overall result is collected into an Array of strings
-        return Stream.of(terms)
-                .map(porterStemmer::stem).toArray(String[]::new);
+    /**
+     * Get the cache of the stems, used to retrieve its statistics.
+     * @return the stem cache used by the parser.
+     */
+    public static StemCache getStemCache() {
+        return stemCache;
     }
 
-    private static List<String> loadStopWords(){
+    private static Set<String> loadStopWords(){
         System.out.println("[PARSER] Loading stop words...");
         //If the stopwords removal and the stemming is requested, the stopwords are read from a file
         try {
-            return Files.readAllLines(Paths.get(STOPWORDS_FILE));
+            return new HashSet<>(Files.readAllLines(Paths.get(STOPWORDS_FILE)));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,142 @@
+package it.unipi.mircv.parser;
+
+import opennlp.tools.stemmer.PorterStemmer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizing cache of the Porter stems. A small number of distinct words covers almost all the occurrences in the
+ * collection, so the stem of each word is computed once and then reused.
+ * The cache is bounded by a maximum number of entries and evicts the least recently used ones; it is divided in
+ * segments, each one with its own lock, so it can be used concurrently by different threads.
+ */
+public class StemCache {
+
+    //Number of segments, must be a power of 2
+    private static final int SEGMENTS = 16;
+
+    //Segments of the cache, each one is a LinkedHashMap in access order
+    private final Segment[] segments;
+
+    //Stemmer of each thread, the Porter stemmer keeps its state in an internal buffer
+    private final ThreadLocal<PorterStemmer> stemmer = ThreadLocal.withInitial(PorterStemmer::new);
+
+    //Counters of the lookups that found the stem in the cache and of the ones that computed it
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor of the class.
+     * @param capacity Maximum number of words of which the stem is kept in memory
+     */
+    public StemCache(int capacity) {
+        segments = new Segment[SEGMENTS];
+        for(int i = 0; i < SEGMENTS; i++){
+            segments[i] = new Segment(Math.max(1, capacity / SEGMENTS));
+        }
+    }
+
+    /**
+     * Return the stem of the given word, computing it only if it is not present in the cache.
+     * @param word Word to be stemmed
+     * @return Stem of the word
+     */
+    public String stem(String word){
+
+        //Spread the hash code to select the segment
+        int hash = word.hashCode();
+        Segment segment = segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+
+        String stem;
+        synchronized (segment){
+            stem = segment.get(word);
+        }
+
+        if(stem != null){
+            hits.incrementAndGet();
+            return stem;
+        }
+
+        //The stem is computed outside the lock, two threads can compute the same stem, but the result is the same
+        misses.incrementAndGet();
+        stem = stemmer.get().stem(word);
+
+        synchronized (segment){
+            segment.put(word, stem);
+        }
+
+        return stem;
+    }
+
+    /**
+     * Get the number of lookups that found the stem in the cache.
+     * @return the number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups that computed the stem.
+     * @return the number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the fraction of lookups that found the stem in the cache.
+     * @return the hit rate, 0 if no lookup was performed.
+     */
+    public double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * Get the number of words currently in the cache.
+     * @return the number of cached stems.
+     */
+    public int size() {
+        int size = 0;
+        for(Segment segment : segments){
+            synchronized (segment){
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "StemCache{" +
+                "size=" + size() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", hitRate=" + getHitRate() +
+                '}';
+    }
+
+    /**
+     * Segment of the cache, a LinkedHashMap in access order that removes its eldest entry when the capacity is reached.
+     */
+    private static class Segment extends LinkedHashMap<String, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        //Maximum number of entries in the segment
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > capacity;
+        }
+    }
+}
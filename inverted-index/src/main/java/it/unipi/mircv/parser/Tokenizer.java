@@ -0,0 +1,149 @@
+package it.unipi.mircv.parser;
+
+import java.util.Arrays;
+
+/**
+ * Single pass tokenizer used by the parser. It scans the characters of a line once, lower casing them and splitting
+ * them at each character that is not a word character ([a-zA-Z_0-9]), the tokens are built directly from the line
+ * without creating intermediate copies of the text.
+ * The tokens produced are the same obtained by: text.toLowerCase().replaceAll("[^\\w\\s]", " ").trim().split("\\s+")
+ * An instance keeps its buffers between calls, so it must not be shared among threads.
+ */
+class Tokenizer {
+
+    //Initial size of the buffers, enough for the most part of the documents
+    private static final int INITIAL_CAPACITY = 64;
+
+    //For each non-ASCII character, the lower case form if it contains at least one word character, null otherwise.
+    // Few characters have this property, e.g. the KELVIN SIGN is lower cased into 'k'.
+    private static final String[] NON_ASCII_LOWER_CASE = buildNonAsciiLowerCase();
+
+    //True if the default locale does not lower case the ASCII letters in the standard way (e.g. turkish), in this case
+    // the tokenizer must fall back to the regex pipeline to produce the same tokens
+    static final boolean LOCALE_SENSITIVE = !"ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase()
+            .equals("abcdefghijklmnopqrstuvwxyz");
+
+    //Buffer containing the characters of the current token
+    private char[] token = new char[INITIAL_CAPACITY];
+
+    //Length of the current token
+    private int tokenLength;
+
+    //Buffer containing the tokens found in the current text
+    private String[] tokens = new String[INITIAL_CAPACITY];
+
+    //Number of tokens found in the current text
+    private int numberOfTokens;
+
+    /**
+     * Tokenize the portion of the line between the given positions.
+     * @param line String containing the text to be tokenized
+     * @param from Index of the first character of the text (inclusive)
+     * @param to Index of the last character of the text (exclusive)
+     * @return Array of tokens, if no token is present it contains only the empty string as done by String.split
+     */
+    String[] tokenize(String line, int from, int to){
+
+        numberOfTokens = 0;
+        tokenLength = 0;
+
+        for(int i = from; i < to; i++){
+            char c = line.charAt(i);
+
+            if(c < 128){
+                //ASCII character, it is appended if it is a word character, otherwise it closes the current token
+                appendOrSplit(c);
+            }else{
+                String lowerCase = NON_ASCII_LOWER_CASE[c];
+
+                if(lowerCase == null){
+                    //Punctuation or non-ASCII letter, both are removed by the regex
+                    closeToken();
+                }else{
+                    for(int j = 0; j < lowerCase.length(); j++){
+                        char l = lowerCase.charAt(j);
+                        if(l < 128){
+                            appendOrSplit(l);
+                        }else{
+                            closeToken();
+                        }
+                    }
+                }
+            }
+        }
+        closeToken();
+
+        //The split of an empty string returns an array containing only the empty string
+        if(numberOfTokens == 0){
+            return new String[]{""};
+        }
+
+        return Arrays.copyOf(tokens, numberOfTokens);
+    }
+
+    /**
+     * Append the ASCII character to the current token if it is a word character, otherwise close the current token.
+     * @param c ASCII character
+     */
+    private void appendOrSplit(char c){
+        if(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_'){
+            append(c);
+        }else if(c >= 'A' && c <= 'Z'){
+            append((char) (c + ('a' - 'A')));
+        }else{
+            closeToken();
+        }
+    }
+
+    /**
+     * Append a character to the current token, doubling the buffer if it is full.
+     * @param c Character to be appended
+     */
+    private void append(char c){
+        if(tokenLength == token.length){
+            token = Arrays.copyOf(token, tokenLength * 2);
+        }
+        token[tokenLength++] = c;
+    }
+
+    /**
+     * Add the current token, if not empty, to the tokens found, then reset it.
+     */
+    private void closeToken(){
+        if(tokenLength == 0){
+            return;
+        }
+
+        if(numberOfTokens == tokens.length){
+            tokens = Arrays.copyOf(tokens, numberOfTokens * 2);
+        }
+        tokens[numberOfTokens++] = new String(token, 0, tokenLength);
+        tokenLength = 0;
+    }
+
+    /**
+     * Build the table of the non-ASCII characters whose lower case form contains a word character.
+     * @return Array indexed by character
+     */
+    private static String[] buildNonAsciiLowerCase(){
+        String[] table = new String[Character.MAX_VALUE + 1];
+
+        for(int c = 128; c <= Character.MAX_VALUE; c++){
+
+            //The surrogates are lower cased as a pair, the result is never an ASCII character
+            if(Character.isSurrogate((char) c)){
+                continue;
+            }
+
+            String lowerCase = String.valueOf((char) c).toLowerCase();
+            for(int j = 0; j < lowerCase.length(); j++){
+                char l = lowerCase.charAt(j);
+                if(l >= 'a' && l <= 'z' || l >= '0' && l <= '9' || l == '_'){
+                    table[c] = lowerCase;
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+}
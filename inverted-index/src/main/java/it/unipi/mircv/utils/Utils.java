@@ -17,13 +17,17 @@ public class Utils {
     }
 
     /**
-     * Compute the number of splits of the given number needed to encode it using variable-length encoding.
-     * It computes the base 128 logarithm of the number and add 1 to it, obtaining the number of groups of
-     * 7 bits that composes the number's representation.
-     * @param number Number of which compute the splits.
-     * @return Returns the number of splits.
+     * Compute the number of splits of the given number needed to encode it using variable-length encoding, that is
+     * the number of groups of 7 bits that composes the number's representation. The groups are counted shifting the
+     * number, since the base 128 logarithm computed with floating point can be wrong near the powers of 128.
+     * @param number Number of which compute the splits, must be greater or equal to 0.
+     * @return Returns the number of splits, 1 for the number 0.
      */
     public static int splitsLog128(long number){
-        return (int)(Math.floor(Math.log(number) / Math.log(128)) + 1);
+        int splits = 1;
+        while((number >>>= 7) != 0){
+            splits++;
+        }
+        return splits;
     }
 }
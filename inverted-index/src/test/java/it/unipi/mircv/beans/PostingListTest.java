@@ -0,0 +1,215 @@
+package it.unipi.mircv.beans;
+
+import it.unipi.mircv.merger.TestIndex;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of nextGEQ, compared with a linear scan of the posting list, for each codec and for both the layouts of the
+ * skip blocks. As done by the query processor, the cursor is moved to the first posting with next before nextGEQ.
+ */
+@RunWith(Parameterized.class)
+public class PostingListTest {
+
+    private static final int NUMBER_OF_DOCUMENTS = 5000;
+
+    //Lengths of the posting lists, around the sizes of the skip blocks
+    private static final int[] LENGTHS = {1, 2, 4, 5, 16, 17, 300};
+
+    @Parameterized.Parameters(name = "{0}, skip block size {1}")
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> parameters = new ArrayList<>();
+        for(String codec : new String[]{null, "vb", "pfordelta", "simple8b", "eliasfano", "streamvbyte"}){
+            for(int skipBlockSize : new int[]{0, 4, 128}){
+                parameters.add(new Object[]{codec, skipBlockSize});
+            }
+        }
+        return parameters;
+    }
+
+    @Parameterized.Parameter(0)
+    public String codec;
+
+    @Parameterized.Parameter(1)
+    public int skipBlockSize;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IndexReader reader;
+    private long[][] docIds;
+    private int[][] frequencies;
+    private TermInfo[] termInfos;
+
+    @Before
+    public void writeIndex() throws IOException {
+        Random random = new Random(13);
+        TestIndex index = new TestIndex(folder.getRoot(), codec, skipBlockSize, NUMBER_OF_DOCUMENTS);
+
+        docIds = new long[LENGTHS.length][];
+        frequencies = new int[LENGTHS.length][];
+        termInfos = new TermInfo[LENGTHS.length];
+
+        for(int i = 0; i < LENGTHS.length; i++){
+            docIds[i] = new long[LENGTHS[i]];
+            frequencies[i] = new int[LENGTHS[i]];
+
+            //The first docid is never 0, so that a target lower than all the docids exists
+            long docId = 1 + random.nextInt(5);
+            for(int j = 0; j < LENGTHS[i]; j++){
+                docIds[i][j] = docId;
+                frequencies[i][j] = 1 + random.nextInt(1 << random.nextInt(16));
+                docId += 1 + (random.nextInt(4) == 0 ? random.nextInt(30) : 0);
+            }
+            termInfos[i] = index.addPostingList("term" + i, docIds[i], frequencies[i]);
+        }
+
+        reader = index.open();
+    }
+
+    @Test
+    public void everyTargetFromTheFirstPosting() {
+        for(int i = 0; i < LENGTHS.length; i++){
+            long last = docIds[i][LENGTHS[i] - 1];
+            for(long target = 0; target <= last + 2; target++){
+                PostingList postingList = open(i);
+                postingList.nextGEQ(target);
+                check(i, expectedIndex(i, 0, target), postingList);
+            }
+        }
+    }
+
+    @Test
+    public void firstAndLastDocIdsOfEachSkipBlock() {
+        for(int i = 0; i < LENGTHS.length; i++){
+            int postingsPerSkipBlock = SkipBlock.postingsPerSkipBlock(LENGTHS[i], skipBlockSize);
+
+            for(int first = 0; first < LENGTHS[i]; first += postingsPerSkipBlock){
+                int last = Math.min(first + postingsPerSkipBlock, LENGTHS[i]) - 1;
+
+                //The target is the max docid of the skip block, or just after it
+                for(long target : new long[]{docIds[i][first], docIds[i][last], docIds[i][last] + 1}){
+                    PostingList postingList = open(i);
+                    postingList.nextGEQ(target);
+                    check(i, expectedIndex(i, 0, target), postingList);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void increasingTargetsOnTheSameCursor() {
+        Random random = new Random(17);
+        for(int i = 0; i < LENGTHS.length; i++){
+            for(int round = 0; round < 20; round++){
+                PostingList postingList = open(i);
+                int index = 0;
+                long target = 0;
+
+                while(true){
+                    //Targets can be repeated or lower than the current docid, and the cursor is also moved by next
+                    if(random.nextInt(5) == 0){
+                        postingList.next();
+                        index++;
+                    }else{
+                        target = Math.max(0, target + random.nextInt(40) - 5);
+                        postingList.nextGEQ(target);
+                        index = expectedIndex(i, index, target);
+                    }
+
+                    if(index == LENGTHS[i]){
+                        assertTrue(postingList.noMorePostings() || !postingList.hasNext());
+                        break;
+                    }
+                    check(i, index, postingList);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void targetBeyondTheLastDocId() {
+        for(int i = 0; i < LENGTHS.length; i++){
+            PostingList postingList = open(i);
+            postingList.nextGEQ(docIds[i][LENGTHS[i] - 1] + 1);
+            assertTrue(postingList.noMorePostings());
+
+            postingList = open(i);
+            postingList.nextGEQ(Long.MAX_VALUE);
+            assertTrue(postingList.noMorePostings());
+        }
+    }
+
+    @Test
+    public void nextAfterNextGEQ() {
+        for(int i = 0; i < LENGTHS.length; i++){
+            PostingList postingList = open(i);
+            int index = LENGTHS[i] / 2;
+            postingList.nextGEQ(docIds[i][index]);
+            check(i, index, postingList);
+
+            //The iteration continues from the posting found
+            for(int j = index + 1; j < LENGTHS[i]; j++){
+                assertEquals(docIds[i][j], postingList.next().getDocId());
+                assertEquals(frequencies[i][j], postingList.getFreq());
+            }
+            assertFalse(postingList.hasNext());
+        }
+    }
+
+    /**
+     * Open a posting list and move the cursor to its first posting.
+     * @param i Index of the posting list
+     * @return the posting list.
+     */
+    private PostingList open(int i) {
+        PostingList postingList = new PostingList();
+        postingList.openList(termInfos[i], reader);
+        postingList.next();
+        return postingList;
+    }
+
+    /**
+     * Find with a linear scan the first posting, from the given one, whose docid is greater or equal to the target.
+     * @param i Index of the posting list
+     * @param from Index of the current posting
+     * @param target Docid searched
+     * @return the index of the posting, the length of the posting list if no posting is found.
+     */
+    private int expectedIndex(int i, int from, long target) {
+        int index = from;
+        while(index < LENGTHS[i] && docIds[i][index] < target){
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Check that the cursor is on the given posting, or at the end of the posting list.
+     * @param i Index of the posting list
+     * @param index Index of the expected posting, the length of the posting list if the list must be ended
+     * @param postingList Posting list
+     */
+    private void check(int i, int index, PostingList postingList) {
+        if(index == LENGTHS[i]){
+            assertTrue(postingList.noMorePostings());
+            return;
+        }
+        assertFalse(postingList.noMorePostings());
+        assertEquals(docIds[i][index], postingList.getDocId());
+        assertEquals(frequencies[i][index], postingList.getFreq());
+    }
+}
@@ -0,0 +1,28 @@
+package it.unipi.mircv.beans;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the number of postings of each skip block, for both the layouts.
+ */
+public class SkipBlockTest {
+
+    @Test
+    public void squareRootOfTheLength() {
+        assertEquals(1, SkipBlock.postingsPerSkipBlock(1, 0));
+        assertEquals(1, SkipBlock.postingsPerSkipBlock(3, 0));
+        assertEquals(2, SkipBlock.postingsPerSkipBlock(4, 0));
+        assertEquals(31, SkipBlock.postingsPerSkipBlock(1023, 0));
+        assertEquals(32, SkipBlock.postingsPerSkipBlock(1024, 0));
+        assertEquals(46340, SkipBlock.postingsPerSkipBlock(Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void fixedSize() {
+        assertEquals(128, SkipBlock.postingsPerSkipBlock(1, 128));
+        assertEquals(128, SkipBlock.postingsPerSkipBlock(1000000, 128));
+        assertEquals(1, SkipBlock.postingsPerSkipBlock(5, 1));
+    }
+}
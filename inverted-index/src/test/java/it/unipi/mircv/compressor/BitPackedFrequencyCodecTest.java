@@ -0,0 +1,92 @@
+package it.unipi.mircv.compressor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the frequencies bit packed in the skip blocks of fixed size.
+ */
+public class BitPackedFrequencyCodecTest {
+
+    private final BitPackedFrequencyCodec codec = new BitPackedFrequencyCodec(new VariableByteCodec());
+
+    @Test
+    public void frequenciesOfOneTakeOneByte() {
+        int[] frequencies = new int[128];
+        Arrays.fill(frequencies, 1);
+
+        byte[] output = new byte[codec.maxEncodedLength(frequencies.length)];
+        assertEquals(1, codec.encodeFrequencies(frequencies, frequencies.length, output, 0));
+        assertEquals(0, output[0]);
+
+        int[] decoded = new int[frequencies.length];
+        codec.decodeFrequencies(output, 0, 1, frequencies.length, decoded);
+        assertArrayEquals(frequencies, decoded);
+    }
+
+    @Test
+    public void widthOfTheLargestFrequency() {
+        //Frequencies up to 4 are stored as 0..3, with 2 bits
+        int[] frequencies = {1, 4, 2, 3, 1};
+        byte[] output = new byte[1 + codec.maxEncodedLength(frequencies.length)];
+        assertEquals(1 + 1 + 2, codec.encodeFrequencies(frequencies, frequencies.length, output, 1));
+        assertEquals(2, output[1]);
+        assertArrayEquals(new byte[]{(byte) 0b10_01_11_00, 0}, Arrays.copyOfRange(output, 2, 4));
+
+        int[] decoded = new int[frequencies.length];
+        codec.decodeFrequencies(output, 1, 3, frequencies.length, decoded);
+        assertArrayEquals(frequencies, decoded);
+    }
+
+    @Test
+    public void largestFrequencies() {
+        int[] frequencies = {Integer.MAX_VALUE, 1, Integer.MAX_VALUE - 1, 2};
+
+        //The code fits the maximum length, with 31 bits for each frequency
+        byte[] output = new byte[codec.maxEncodedLength(frequencies.length)];
+        int end = codec.encodeFrequencies(frequencies, frequencies.length, output, 0);
+        assertEquals(31, output[0]);
+        assertEquals(1 + BitPacking.bytesFor(31 * 4), end);
+        assertTrue(end <= output.length);
+
+        int[] decoded = new int[frequencies.length];
+        codec.decodeFrequencies(output, 0, end, frequencies.length, decoded);
+        assertArrayEquals(frequencies, decoded);
+    }
+
+    @Test
+    public void emptySkipBlock() {
+        byte[] output = new byte[codec.maxEncodedLength(0)];
+        assertEquals(1, codec.encodeFrequencies(new int[0], 0, output, 0));
+        codec.decodeFrequencies(output, 0, 1, 0, new int[0]);
+    }
+
+    @Test
+    public void docIdsAreEncodedByTheOtherCodec() {
+        long[] docIds = {3, 1000, 1L << 40};
+        VariableByteCodec docIdsCodec = new VariableByteCodec();
+
+        byte[] expected = new byte[docIdsCodec.maxEncodedLength(docIds.length)];
+        int expectedEnd = docIdsCodec.encodeDocIds(docIds, docIds.length, expected, 0);
+
+        byte[] output = new byte[codec.maxEncodedLength(docIds.length)];
+        int end = codec.encodeDocIds(docIds, docIds.length, output, 0);
+        assertArrayEquals(Arrays.copyOf(expected, expectedEnd), Arrays.copyOf(output, end));
+        assertEquals(VariableByteCodec.NAME, codec.getName());
+
+        long[] decoded = new long[docIds.length];
+        codec.decodeDocIds(output, 0, end, docIds.length, decoded);
+        assertArrayEquals(docIds, decoded);
+    }
+
+    @Test
+    public void codecOfTheFixedSizeLayout() {
+        assertTrue(PostingCodec.forLayout(PForDeltaCodec.NAME, 128) instanceof BitPackedFrequencyCodec);
+        assertTrue(PostingCodec.forLayout(PForDeltaCodec.NAME, 0) instanceof PForDeltaCodec);
+    }
+}
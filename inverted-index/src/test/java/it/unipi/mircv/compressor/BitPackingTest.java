@@ -0,0 +1,108 @@
+package it.unipi.mircv.compressor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the values written and read with a fixed number of bits.
+ */
+public class BitPackingTest {
+
+    //Widths around the byte and word boundaries
+    private static final int[] WIDTHS = {0, 1, 7, 8, 9, 31, 32, 33, 63, 64};
+
+    @Test
+    public void bitWidths() {
+        assertEquals(0, BitPacking.bitWidth(0));
+        assertEquals(1, BitPacking.bitWidth(1));
+        assertEquals(8, BitPacking.bitWidth(255));
+        assertEquals(9, BitPacking.bitWidth(256));
+        assertEquals(31, BitPacking.bitWidth(Integer.MAX_VALUE));
+        assertEquals(32, BitPacking.bitWidth(1L << 31));
+        assertEquals(63, BitPacking.bitWidth(Long.MAX_VALUE));
+        assertEquals(64, BitPacking.bitWidth(-1));
+    }
+
+    @Test
+    public void bytesForBits() {
+        assertEquals(0, BitPacking.bytesFor(0));
+        assertEquals(1, BitPacking.bytesFor(1));
+        assertEquals(1, BitPacking.bytesFor(8));
+        assertEquals(2, BitPacking.bytesFor(9));
+        assertEquals(1L << 28, BitPacking.bytesFor((long) Integer.MAX_VALUE + 1));
+    }
+
+    @Test
+    public void largestValueOfEachWidth() {
+        for(int bits : WIDTHS){
+            long max = bits == 64 ? -1 : (1L << bits) - 1;
+            long[] values = new long[13];
+            Arrays.fill(values, max);
+            values[5] = 0;
+            roundTrip(values, bits);
+        }
+    }
+
+    @Test
+    public void randomValuesOfEachWidth() {
+        Random random = new Random(5);
+        for(int bits : WIDTHS){
+            for(int count : new int[]{0, 1, 2, 7, 8, 9, 128, 129}){
+                long[] values = new long[count];
+                for(int i = 0; i < count; i++){
+                    values[i] = bits == 0 ? 0 : random.nextLong() >>> (64 - bits);
+                }
+                roundTrip(values, bits);
+            }
+        }
+    }
+
+    @Test
+    public void widthZeroTakesNoBytes() {
+        byte[] output = {0x55};
+        assertEquals(0, BitPacking.pack(new long[100], 0, 100, 0, output, 0));
+        assertEquals(0x55, output[0]);
+
+        long[] decoded = new long[100];
+        Arrays.fill(decoded, 1);
+        assertEquals(0, BitPacking.unpack(output, 0, 0, decoded, 0, 100));
+        assertArrayEquals(new long[100], decoded);
+    }
+
+    @Test
+    public void leastSignificantBitsFirst() {
+        //3 values of 3 bits: 0b101, 0b011, 0b110 are written as 0b10_011_101 and 0b1
+        byte[] output = new byte[2];
+        assertEquals(2, BitPacking.pack(new long[]{5, 3, 6}, 0, 3, 3, output, 0));
+        assertArrayEquals(new byte[]{(byte) 0b10011101, 0b1}, output);
+    }
+
+    /**
+     * Pack the values with the given width at an offset of the output, from an index of the input, and unpack them.
+     * @param values Values fitting the width
+     * @param bits Number of bits of each value
+     */
+    private static void roundTrip(long[] values, int bits) {
+        int count = values.length;
+        int length = BitPacking.bytesFor((long) count * bits);
+
+        long[] input = new long[count + 2];
+        System.arraycopy(values, 0, input, 2, count);
+
+        //The bytes around the values must be left untouched
+        byte[] output = new byte[3 + length + 1];
+        Arrays.fill(output, (byte) 0x55);
+        assertEquals(3 + length, BitPacking.pack(input, 2, count, bits, output, 3));
+        assertArrayEquals(new byte[]{0x55, 0x55, 0x55}, Arrays.copyOf(output, 3));
+        assertEquals(0x55, output[3 + length]);
+
+        long[] decoded = new long[count + 1];
+        assertEquals(3 + length, BitPacking.unpack(output, 3, bits, decoded, 1, count));
+        assertArrayEquals(values, Arrays.copyOfRange(decoded, 1, count + 1));
+    }
+}
@@ -0,0 +1,216 @@
+package it.unipi.mircv.compressor;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static it.unipi.mircv.utils.Utils.splitsLog128;
+
+/**
+ * Micro benchmark comparing the throughput of the Variable Byte Encoding implemented on lists of boxed numbers, kept
+ * here as a reference, with the one implemented by Compressor on arrays of primitive types. The numbers are random
+ * d-gaps, with the skewed distribution of the gaps of the posting lists. The number of values and of iterations can be
+ * passed as arguments. It is not run by the tests.
+ */
+public class CompressorBenchmark {
+
+    public static void main(String[] args) {
+
+        //Number of values to be compressed and number of measured iterations
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        //Generate the gaps, most of them are small but some require more bytes
+        Random random = new Random(42);
+        int[] numbers = new int[size];
+        ArrayList<Integer> numbersList = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            numbers[i] = 1 + (int) Math.min(Integer.MAX_VALUE - 1, (long) -Math.log(1 - random.nextDouble()) * (1 << random.nextInt(16)));
+            numbersList.add(numbers[i]);
+        }
+
+        byte[] encoded = new byte[5 * size];
+        int encodedLength = Compressor.variableByteEncode(numbers, size, encoded, 0);
+        byte[] encodedExact = new byte[encodedLength];
+        System.arraycopy(encoded, 0, encodedExact, 0, encodedLength);
+
+        int[] decoded = new int[encodedLength];
+        long[] decodedGaps = new long[encodedLength];
+
+        System.out.println("[BENCHMARK] " + size + " numbers, " + encodedLength + " bytes");
+
+        //The first iterations are not measured, to let the JIT compile the methods
+        for(int round = 0; round < 2; round++) {
+            boolean measure = round == 1;
+            int runs = measure ? iterations : Math.max(1, iterations / 2);
+
+            long begin = System.nanoTime();
+            long check = 0;
+            for(int i = 0; i < runs; i++) {
+                ArrayList<Byte> bytes = new ArrayList<>();
+                for(Integer number : numbersList) {
+                    for(byte b : variableByteEncodeNumber(number)) {
+                        bytes.add(b);
+                    }
+                }
+                check += bytes.size();
+            }
+            report(measure, "encode, list of bytes", size, runs, begin, check);
+
+            begin = System.nanoTime();
+            check = 0;
+            for(int i = 0; i < runs; i++) {
+                check += Compressor.variableByteEncode(numbers, size, encoded, 0);
+            }
+            report(measure, "encode, arrays", size, runs, begin, check);
+
+            begin = System.nanoTime();
+            check = 0;
+            for(int i = 0; i < runs; i++) {
+                check += variableByteDecode(encodedExact).size();
+            }
+            report(measure, "decode, list of integers", size, runs, begin, check);
+
+            begin = System.nanoTime();
+            check = 0;
+            for(int i = 0; i < runs; i++) {
+                check += Compressor.variableByteDecode(encodedExact, 0, encodedLength, decoded);
+            }
+            report(measure, "decode, arrays", size, runs, begin, check);
+
+            begin = System.nanoTime();
+            check = 0;
+            for(int i = 0; i < runs; i++) {
+                check += variableByteDecodeGaps(encodedExact).size();
+            }
+            report(measure, "decode gaps, list of longs", size, runs, begin, check);
+
+            begin = System.nanoTime();
+            check = 0;
+            for(int i = 0; i < runs; i++) {
+                check += Compressor.variableByteDecodeGaps(encodedExact, 0, encodedLength, decodedGaps);
+            }
+            report(measure, "decode gaps, arrays", size, runs, begin, check);
+        }
+    }
+
+    /**
+     * Print the throughput of a measured test.
+     * @param measure True if the test is measured
+     * @param name Name of the test
+     * @param size Number of values processed in each run
+     * @param runs Number of runs
+     * @param begin Time at the beginning of the test
+     * @param check Value computed by the test, printed so the test is not removed by the JIT
+     */
+    private static void report(boolean measure, String name, int size, int runs, long begin, long check) {
+        if(measure) {
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            System.out.printf("[BENCHMARK] %-28s %8.1f M numbers/s (check %d)%n", name, (double) size * runs / seconds / 1e6, check);
+        }
+    }
+
+    /**
+     * Compress the given number using the Variable Byte Encoding.
+     * @param number Number to be compressed
+     * @return Array of bytes containing the code of the number
+     */
+    private static byte[] variableByteEncodeNumber(long number){
+
+        //Retrieve the number of splits required to encode the number
+        int numberOfBytes = splitsLog128(number);
+
+        //Array to hold the encoded bytes
+        byte[] bytes = new byte[numberOfBytes];
+
+        //Write the number representation in big-endian order from the MSByte to the LSByte
+        for(int i = numberOfBytes - 1; i >= 0; i--){
+
+            //Prepend of the reminder of the division by 128 (retrieve the 7 LSB)
+            byte b = (byte) (number % 128);
+            bytes[i] = b;
+
+            //Shift right the number by 7 position
+            number /= 128;
+        }
+
+        //Set the control bit of the last byte to 1, to indicate that it is the last byte
+        bytes[numberOfBytes - 1] += 128;
+
+        //Return the encoded number
+        return bytes;
+    }
+
+    /**
+     * Decode the given array of bytes that contains a Variable Byte Encoding of a list of integers, returning the
+     * corresponding list of integers.
+     * @param bytes Compressed list of integers.
+     * @return Decompressed list of integers.
+     */
+    private static ArrayList<Integer> variableByteDecode(byte[] bytes){
+
+        //Array to hold the decoded numbers
+        ArrayList<Integer> numbers = new ArrayList<>();
+
+        //Accumulator for the current decoded number
+        int number = 0;
+
+        //For each byte in the array
+        for (byte aByte : bytes) {
+
+            //We use the mask 0x80 = 1000 0000, to check if the MSB of the byte is 1
+            if ((aByte & 0x80) == 0x00) {
+                //The MSB is 0, then we're not at the end of the sequence of bytes of the code
+                number = number * 128 + aByte;
+            } else {
+                //The MSB is 1, then we're at the end
+
+                //Add to the accumulator number*128 + the integer value in aByte discarding the 1 in the MSB
+                number = number * 128 + (aByte &  0x7F);
+
+                //Add the decoded number to the list of numbers
+                numbers.add(number);
+
+                //Reset the accumulator
+                number = 0;
+            }
+        }
+
+        //Return the list of numbers
+        return numbers;
+    }
+
+    /**
+     * Decode the given array of bytes that contains a Variable Byte Encoding of a list of docids encoded as gaps,
+     * returning the corresponding list of docids. The first gap is the gap from 0.
+     * @param bytes Compressed list of gaps.
+     * @return Decompressed list of docids.
+     */
+    private static ArrayList<Long> variableByteDecodeGaps(byte[] bytes){
+
+        //Array to hold the decoded docids
+        ArrayList<Long> docIds = new ArrayList<>();
+
+        //Accumulator for the current decoded gap
+        long gap = 0;
+
+        //Last decoded docid, the next gap is added to it
+        long docId = 0;
+
+        //For each byte in the array
+        for (byte aByte : bytes) {
+
+            //Add the 7 LSB of the byte to the accumulator
+            gap = gap * 128 + (aByte & 0x7F);
+
+            //If the MSB is 1 we're at the end of the code of the gap
+            if ((aByte & 0x80) != 0x00) {
+                docId += gap;
+                docIds.add(docId);
+                gap = 0;
+            }
+        }
+
+        //Return the list of docids
+        return docIds;
+    }
+}
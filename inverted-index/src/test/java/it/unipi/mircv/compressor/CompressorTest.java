@@ -0,0 +1,128 @@
+package it.unipi.mircv.compressor;
+
+import it.unipi.mircv.io.BinaryWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static it.unipi.mircv.utils.Utils.splitsLog128;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the Variable Byte encoding and decoding over arrays of primitive types.
+ */
+public class CompressorTest {
+
+    //Numbers around the powers of 128, where the length of the code changes
+    private static final int[] NUMBERS = {0, 1, 127, 128, 129, 16383, 16384, 2097151, 2097152, 268435455, 268435456,
+            Integer.MAX_VALUE};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void splitsAroundThePowersOf128() {
+        assertEquals(1, splitsLog128(0));
+        assertEquals(1, splitsLog128(127));
+        assertEquals(2, splitsLog128(128));
+        assertEquals(2, splitsLog128(16383));
+        assertEquals(3, splitsLog128(16384));
+        assertEquals(5, splitsLog128(Integer.MAX_VALUE));
+        assertEquals(9, splitsLog128(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void singleNumberCode() {
+        byte[] output = new byte[10];
+
+        assertEquals(1, Compressor.variableByteEncodeNumber(0, output, 0));
+        assertEquals((byte) 0x80, output[0]);
+
+        //300 = 2 * 128 + 44, the last byte has the most significant bit set
+        assertEquals(3, Compressor.variableByteEncodeNumber(300, output, 1));
+        assertArrayEquals(new byte[]{2, (byte) (44 | 0x80)}, Arrays.copyOfRange(output, 1, 3));
+
+        for(long number : new long[]{0, 127, 128, 16384, Long.MAX_VALUE}){
+            assertEquals(splitsLog128(number), Compressor.variableByteEncodeNumber(number, output, 0));
+        }
+    }
+
+    @Test
+    public void numbersRoundTrip() {
+        byte[] output = new byte[5 * NUMBERS.length + 3];
+
+        //The code is written after some bytes that must be left untouched
+        int end = Compressor.variableByteEncode(NUMBERS, NUMBERS.length, output, 3);
+        int expectedLength = 0;
+        for(int number : NUMBERS){
+            expectedLength += splitsLog128(number);
+        }
+        assertEquals(3 + expectedLength, end);
+        assertArrayEquals(new byte[3], Arrays.copyOf(output, 3));
+
+        int[] decoded = new int[end];
+        assertEquals(NUMBERS.length, Compressor.variableByteDecode(output, 3, end - 3, decoded));
+        assertArrayEquals(NUMBERS, Arrays.copyOf(decoded, NUMBERS.length));
+
+        ByteBuffer buffer = ByteBuffer.wrap(output, 3, end - 3);
+        decoded = new int[NUMBERS.length];
+        Compressor.variableByteDecode(buffer, NUMBERS.length, decoded);
+        assertArrayEquals(NUMBERS, decoded);
+        assertEquals(end, buffer.position());
+    }
+
+    @Test
+    public void gapsRoundTrip() {
+        long[] docIds = {0, 1, 129, 16513, 1L << 33, (1L << 33) + 1, Long.MAX_VALUE};
+
+        byte[] output = new byte[10 * docIds.length];
+        int end = 0;
+        long previousDocId = 0;
+        for(long docId : docIds){
+            end = Compressor.variableByteEncodeNumber(docId - previousDocId, output, end);
+            previousDocId = docId;
+        }
+
+        long[] decoded = new long[end];
+        assertEquals(docIds.length, Compressor.variableByteDecodeGaps(output, 0, end, decoded));
+        assertArrayEquals(docIds, Arrays.copyOf(decoded, docIds.length));
+
+        decoded = new long[docIds.length];
+        Compressor.variableByteDecodeGaps(ByteBuffer.wrap(output, 0, end), docIds.length, decoded);
+        assertArrayEquals(docIds, decoded);
+    }
+
+    @Test
+    public void emptyInput() {
+        assertEquals(5, Compressor.variableByteEncode(NUMBERS, 0, new byte[0], 5));
+        assertEquals(0, Compressor.variableByteDecode(new byte[4], 2, 0, new int[0]));
+        assertEquals(0, Compressor.variableByteDecodeGaps(new byte[4], 2, 0, new long[0]));
+    }
+
+    @Test
+    public void writerAndArrayCodesAreTheSame() throws IOException {
+        File file = folder.newFile();
+
+        byte[] expected = new byte[10 * NUMBERS.length + 10];
+        int end = 0;
+        int length = 0;
+        try (BinaryWriter writer = new BinaryWriter(file.getPath())) {
+            for(int number : NUMBERS){
+                length += Compressor.variableByteEncodeNumber(number, writer);
+                end = Compressor.variableByteEncodeNumber(number, expected, end);
+            }
+            length += Compressor.variableByteEncodeNumber(Long.MAX_VALUE, writer);
+            end = Compressor.variableByteEncodeNumber(Long.MAX_VALUE, expected, end);
+        }
+
+        assertEquals(end, length);
+        assertArrayEquals(Arrays.copyOf(expected, end), Files.readAllBytes(file.toPath()));
+    }
+}
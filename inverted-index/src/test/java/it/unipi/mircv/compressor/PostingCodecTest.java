@@ -0,0 +1,185 @@
+package it.unipi.mircv.compressor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round trip of the docids and frequencies of a skip block for each posting codec. The code is always written after
+ * some bytes in an array that has exactly the maximum length declared by the codec, and decoded in arrays of exactly
+ * the number of postings.
+ */
+@RunWith(Parameterized.class)
+public class PostingCodecTest {
+
+    //Bytes before the code in the output array
+    private static final int OFFSET = 3;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> parameters = new ArrayList<>();
+        parameters.add(new Object[]{VariableByteCodec.NAME, Long.MAX_VALUE});
+        parameters.add(new Object[]{PForDeltaCodec.NAME, Long.MAX_VALUE});
+        parameters.add(new Object[]{Simple8bCodec.NAME, (1L << 60) - 1});
+        parameters.add(new Object[]{EliasFanoCodec.NAME, Long.MAX_VALUE});
+        parameters.add(new Object[]{StreamVByteCodec.NAME, (1L << 32) - 1});
+        return parameters;
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    //Largest docid supported by the codec
+    @Parameterized.Parameter(1)
+    public long maxDocId;
+
+    @Test
+    public void codecIsCreatedByName() {
+        assertEquals(name, PostingCodec.forName(name).getName());
+        assertEquals(name, PostingCodec.forLayout(name, 0).getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCodecIsRefused() {
+        PostingCodec.forName(name + "x");
+    }
+
+    @Test
+    public void docIdsBeyondTheLargestAreRefused() {
+        if(maxDocId == Long.MAX_VALUE){
+            return;
+        }
+        PostingCodec codec = PostingCodec.forName(name);
+        try {
+            codec.encodeDocIds(new long[]{0, maxDocId + 1}, 2, new byte[codec.maxEncodedLength(2)], 0);
+            fail("The docid " + (maxDocId + 1) + " was encoded by " + name);
+        } catch (IllegalArgumentException e) {
+            //Expected, the gap doesn't fit the code
+        }
+    }
+
+    @Test
+    public void emptySkipBlock() {
+        PostingCodec codec = PostingCodec.forName(name);
+        byte[] output = new byte[OFFSET + codec.maxEncodedLength(0)];
+
+        int end = codec.encodeDocIds(new long[0], 0, output, OFFSET);
+        codec.decodeDocIds(output, OFFSET, end - OFFSET, 0, new long[0]);
+
+        end = codec.encodeFrequencies(new int[0], 0, output, OFFSET);
+        codec.decodeFrequencies(output, OFFSET, end - OFFSET, 0, new int[0]);
+    }
+
+    @Test
+    public void singlePosting() {
+        for(long docId : new long[]{0, 1, 127, 128, 1000000, Integer.MAX_VALUE, maxDocId}){
+            roundTrip(new long[]{docId}, new int[]{1});
+        }
+        roundTrip(new long[]{5}, new int[]{Integer.MAX_VALUE});
+    }
+
+    @Test
+    public void consecutiveDocIds() {
+        for(int count : new int[]{2, 127, 128, 129, 240, 241, 1000}){
+            long[] docIds = new long[count];
+            int[] frequencies = new int[count];
+            for(int i = 0; i < count; i++){
+                docIds[i] = 1000 + i;
+                frequencies[i] = 1;
+            }
+            roundTrip(docIds, frequencies);
+        }
+    }
+
+    @Test
+    public void largestValues() {
+        roundTrip(new long[]{0, maxDocId}, new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE});
+        roundTrip(new long[]{maxDocId - 2, maxDocId - 1, maxDocId}, new int[]{1, Integer.MAX_VALUE, 1});
+        roundTrip(new long[]{0, 1, maxDocId / 2, maxDocId}, new int[]{Integer.MAX_VALUE, 1, 2, Integer.MAX_VALUE});
+    }
+
+    @Test
+    public void fewLargeValuesAmongSmallOnes() {
+        //The large gaps and frequencies don't fit the width chosen for the others
+        int count = 300;
+        long[] docIds = new long[count];
+        int[] frequencies = new int[count];
+        long docId = 0;
+        for(int i = 0; i < count; i++){
+            docId += i % 37 == 0 ? 1L << 24 : 1 + i % 3;
+            docIds[i] = docId;
+            frequencies[i] = i % 41 == 0 ? Integer.MAX_VALUE : 1 + i % 5;
+        }
+        roundTrip(docIds, frequencies);
+    }
+
+    @Test
+    public void randomSkipBlocks() {
+        Random random = new Random(11);
+        PostingCodec codec = PostingCodec.forName(name);
+
+        //The same instance is used for skip blocks of decreasing and increasing sizes, as during the merge
+        for(int round = 0; round < 300; round++){
+            int count = 1 + random.nextInt(round % 3 == 0 ? 2000 : 64);
+            int bits = 1 + random.nextInt(40);
+
+            long[] docIds = new long[count];
+            int[] frequencies = new int[count];
+            long docId = random.nextInt(1 << 20);
+            long maxGap = (maxDocId - docId) / count;
+            for(int i = 0; i < count; i++){
+                docIds[i] = docId;
+                docId += 1 + Math.min(maxGap - 1, (random.nextLong() >>> 1) >>> (63 - bits));
+                frequencies[i] = 1 + (random.nextInt() >>> (1 + random.nextInt(31)));
+            }
+            roundTrip(codec, docIds, frequencies);
+        }
+    }
+
+    /**
+     * Encode and decode the given postings with a new instance of the codec.
+     * @param docIds Docids, in increasing order
+     * @param frequencies Frequencies
+     */
+    private void roundTrip(long[] docIds, int[] frequencies) {
+        roundTrip(PostingCodec.forName(name), docIds, frequencies);
+    }
+
+    /**
+     * Encode and decode the given postings with the given codec, checking that the code is within the maximum length.
+     * @param codec Codec
+     * @param docIds Docids, in increasing order
+     * @param frequencies Frequencies
+     */
+    private static void roundTrip(PostingCodec codec, long[] docIds, int[] frequencies) {
+        int count = docIds.length;
+        byte[] output = new byte[OFFSET + codec.maxEncodedLength(count)];
+        Arrays.fill(output, (byte) 0x55);
+
+        int end = codec.encodeDocIds(docIds, count, output, OFFSET);
+        assertTrue(end <= output.length);
+        assertArrayEquals(new byte[]{0x55, 0x55, 0x55}, Arrays.copyOf(output, OFFSET));
+
+        long[] decodedDocIds = new long[count];
+        codec.decodeDocIds(output, OFFSET, end - OFFSET, count, decodedDocIds);
+        assertArrayEquals(docIds, decodedDocIds);
+
+        Arrays.fill(output, (byte) 0x55);
+        end = codec.encodeFrequencies(frequencies, count, output, OFFSET);
+        assertTrue(end <= output.length);
+
+        int[] decodedFrequencies = new int[count];
+        codec.decodeFrequencies(output, OFFSET, end - OFFSET, count, decodedFrequencies);
+        assertArrayEquals(frequencies, decodedFrequencies);
+    }
+}
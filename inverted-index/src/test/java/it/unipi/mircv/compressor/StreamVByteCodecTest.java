@@ -0,0 +1,99 @@
+package it.unipi.mircv.compressor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the layout of the Stream VByte code and of the scalar decoder. The vectorized decoder of the
+ * query-evaluation module is not covered here, it needs a more recent JDK than this module.
+ */
+public class StreamVByteCodecTest {
+
+    private final ScalarStreamVByteDecoder decoder = new ScalarStreamVByteDecoder();
+
+    @Test
+    public void valuesOfOneToFourBytes() {
+        int[] values = {0x12, 0x1234, 0x123456, 0x12345678, -1};
+        byte[] output = new byte[StreamVByteCodec.controlBytes(values.length) + 4 * values.length];
+
+        int end = StreamVByteCodec.encode(values, values.length, output, 0);
+
+        //Two control bytes, the lengths of the first group are 1, 2, 3 and 4 bytes, the last value needs 4 bytes
+        assertEquals(2 + 1 + 2 + 3 + 4 + 4, end);
+        assertEquals((byte) 0b11_10_01_00, output[0]);
+        assertEquals(0b11, output[1]);
+
+        //Little-endian data bytes
+        assertArrayEquals(new byte[]{0x12, 0x34, 0x12, 0x56, 0x34, 0x12, 0x78, 0x56, 0x34, 0x12, -1, -1, -1, -1},
+                Arrays.copyOfRange(output, 2, end));
+
+        int[] decoded = new int[values.length];
+        decoder.decode(output, 0, values.length, decoded, false);
+        assertArrayEquals(values, decoded);
+    }
+
+    @Test
+    public void countsThatAreNotMultiplesOfFour() {
+        Random random = new Random(3);
+        for(int count = 0; count <= 17; count++){
+            int[] values = new int[count];
+            for(int i = 0; i < count; i++){
+                values[i] = random.nextInt() >>> random.nextInt(32);
+            }
+
+            //The code is written after a byte that must be left untouched, in an array with no spare bytes
+            byte[] output = new byte[1 + StreamVByteCodec.controlBytes(count) + 4 * count];
+            output[0] = 0x55;
+            int end = StreamVByteCodec.encode(values, count, output, 1);
+            assertEquals(0x55, output[0]);
+            assertEquals((count + 3) / 4, StreamVByteCodec.controlBytes(count));
+
+            int[] decoded = new int[count];
+            decoder.decode(Arrays.copyOf(output, end), 1, count, decoded, false);
+            assertArrayEquals(values, decoded);
+        }
+    }
+
+    @Test
+    public void differentialDecoding() {
+        int[] gaps = {7, 1, 1, 300, 70000, 0};
+        int[] docIds = new int[gaps.length];
+        int docId = 0;
+        for(int i = 0; i < gaps.length; i++){
+            docId += gaps[i];
+            docIds[i] = docId;
+        }
+
+        byte[] output = new byte[StreamVByteCodec.controlBytes(gaps.length) + 4 * gaps.length];
+        StreamVByteCodec.encode(gaps, gaps.length, output, 0);
+
+        int[] decoded = new int[gaps.length];
+        decoder.decode(output, 0, gaps.length, decoded, true);
+        assertArrayEquals(docIds, decoded);
+    }
+
+    @Test
+    public void docIdsAboveTheSignedIntRange() {
+        //The docids are decoded as unsigned integers, the sums of the gaps can pass Integer.MAX_VALUE
+        long[] docIds = {Integer.MAX_VALUE - 1L, Integer.MAX_VALUE, 1L << 31, (1L << 32) - 2, (1L << 32) - 1};
+        StreamVByteCodec codec = new StreamVByteCodec();
+
+        byte[] output = new byte[codec.maxEncodedLength(docIds.length)];
+        int end = codec.encodeDocIds(docIds, docIds.length, output, 0);
+
+        long[] decoded = new long[docIds.length];
+        codec.decodeDocIds(output, 0, end, docIds.length, decoded);
+        assertArrayEquals(docIds, decoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void docIdsOf33BitsAreRefused() {
+        StreamVByteCodec codec = new StreamVByteCodec();
+        codec.encodeDocIds(new long[]{1, 1L << 32}, 2, new byte[codec.maxEncodedLength(2)], 0);
+    }
+}
@@ -0,0 +1,77 @@
+package it.unipi.mircv.compressor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the layout of the docids encoded by VariableByteCodec: gaps from the previous docid of the same skip block,
+ * so each skip block is decoded without the previous ones.
+ */
+public class VariableByteCodecTest {
+
+    private final VariableByteCodec codec = new VariableByteCodec();
+
+    @Test
+    public void firstDocIdIsTheGapFromZero() {
+        byte[] output = new byte[codec.maxEncodedLength(3)];
+        int end = codec.encodeDocIds(new long[]{1000, 1001, 1005}, 3, output, 0);
+
+        //1000 = 7 * 128 + 104, followed by the gaps 1 and 4
+        assertArrayEquals(new byte[]{7, (byte) (104 | 0x80), (byte) (1 | 0x80), (byte) (4 | 0x80)},
+                Arrays.copyOf(output, end));
+    }
+
+    @Test
+    public void skipBlocksAreDecodedIndependently() {
+        long[] firstBlock = {3, 90, 200, 201};
+        long[] secondBlock = {5000, 5001, 70000, 1L << 40};
+
+        byte[] output = new byte[codec.maxEncodedLength(8)];
+        int middle = codec.encodeDocIds(firstBlock, firstBlock.length, output, 0);
+        int end = codec.encodeDocIds(secondBlock, secondBlock.length, output, middle);
+
+        //The second skip block starts from 0, not from the last docid of the first one
+        long[] decoded = new long[secondBlock.length];
+        codec.decodeDocIds(output, middle, end - middle, secondBlock.length, decoded);
+        assertArrayEquals(secondBlock, decoded);
+
+        decoded = new long[firstBlock.length];
+        codec.decodeDocIds(output, 0, middle, firstBlock.length, decoded);
+        assertArrayEquals(firstBlock, decoded);
+    }
+
+    @Test
+    public void singleAndLargestDocIds() {
+        for(long docId : new long[]{0, 1, 127, 128, Integer.MAX_VALUE, 1L << 35, Long.MAX_VALUE}){
+            byte[] output = new byte[codec.maxEncodedLength(1)];
+            int end = codec.encodeDocIds(new long[]{docId}, 1, output, 0);
+
+            long[] decoded = new long[1];
+            codec.decodeDocIds(output, 0, end, 1, decoded);
+            assertEquals(docId, decoded[0]);
+        }
+    }
+
+    @Test
+    public void emptySkipBlock() {
+        byte[] output = new byte[1];
+        assertEquals(0, codec.encodeDocIds(new long[0], 0, output, 0));
+        assertEquals(0, codec.encodeFrequencies(new int[0], 0, output, 0));
+    }
+
+    @Test
+    public void frequenciesAreNotGaps() {
+        int[] frequencies = {5, 1, 300, 2, Integer.MAX_VALUE};
+
+        byte[] output = new byte[codec.maxEncodedLength(frequencies.length)];
+        int end = codec.encodeFrequencies(frequencies, frequencies.length, output, 0);
+
+        int[] decoded = new int[frequencies.length];
+        codec.decodeFrequencies(output, 0, end, frequencies.length, decoded);
+        assertArrayEquals(frequencies, decoded);
+    }
+}
@@ -0,0 +1,136 @@
+package it.unipi.mircv.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the reads of a mapped file, in particular of the values and ranges crossing two or more chunks.
+ */
+public class MappedFileTest {
+
+    //Small chunk sizes, so that the values of 4 and 8 bytes straddle the chunks at every possible split
+    private static final long[] CHUNK_SIZES = {1, 3, 7, 8, 4096};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void valuesAtEveryPosition() throws IOException {
+        byte[] content = new byte[100];
+        new Random(9).nextBytes(content);
+        String path = write(content);
+        ByteBuffer expected = ByteBuffer.wrap(content);
+
+        for(long chunkSize : CHUNK_SIZES){
+            MappedFile file = new MappedFile(path, chunkSize);
+            assertEquals(content.length, file.size());
+
+            for(int position = 0; position < content.length; position++){
+                assertEquals(content[position], file.getByte(position));
+                if(position + Integer.BYTES <= content.length){
+                    assertEquals(expected.getInt(position), file.getInt(position));
+                }
+                if(position + Long.BYTES <= content.length){
+                    assertEquals(expected.getLong(position), file.getLong(position));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rangesAcrossChunks() throws IOException {
+        byte[] content = new byte[50];
+        new Random(10).nextBytes(content);
+        String path = write(content);
+
+        for(long chunkSize : CHUNK_SIZES){
+            MappedFile file = new MappedFile(path, chunkSize);
+
+            for(int position = 0; position <= content.length; position++){
+                for(int length = 0; position + length <= content.length; length++){
+
+                    //The bytes around the range must be left untouched
+                    byte[] destination = new byte[length + 2];
+                    file.read(position, destination, 1, length);
+                    assertEquals(0, destination[0]);
+                    assertEquals(0, destination[length + 1]);
+                    assertArrayEquals(Arrays.copyOfRange(content, position, position + length),
+                            Arrays.copyOfRange(destination, 1, length + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyFile() throws IOException {
+        MappedFile file = new MappedFile(write(new byte[0]), 8);
+        assertEquals(0, file.size());
+        file.read(0, new byte[0], 0, 0);
+    }
+
+    @Test
+    public void fileOfTheChunkSize() throws IOException {
+        byte[] content = {1, 2, 3, 4, 5, 6, 7, 8};
+        MappedFile file = new MappedFile(write(content), content.length);
+        assertEquals(0x0102030405060708L, file.getLong(0));
+        assertEquals(0x05060708, file.getInt(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyChunksAreRefused() throws IOException {
+        new MappedFile(write(new byte[1]), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunksLargerThanAMappingAreRefused() throws IOException {
+        new MappedFile(write(new byte[1]), Integer.MAX_VALUE + 1L);
+    }
+
+    @Test
+    public void valuesAtTheEndOfTheLargestChunk() throws IOException {
+        //Sparse file just larger than a chunk of Integer.MAX_VALUE bytes, where the index of the end of a value
+        //doesn't fit an int
+        File sparse = folder.newFile();
+        long end = Integer.MAX_VALUE + 16L;
+        try (RandomAccessFile file = new RandomAccessFile(sparse, "rw")) {
+            file.setLength(end);
+            file.seek(Integer.MAX_VALUE - 4L);
+            file.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        }
+
+        MappedFile file = new MappedFile(sparse.getPath(), Integer.MAX_VALUE);
+        assertEquals(end, file.size());
+        assertEquals(0x01020304, file.getInt(Integer.MAX_VALUE - 4L));
+        assertEquals(0x02030405, file.getInt(Integer.MAX_VALUE - 3L));
+        assertEquals(0x0405060708090A0BL, file.getLong(Integer.MAX_VALUE - 1L));
+        assertEquals(0x0102030405060708L, file.getLong(Integer.MAX_VALUE - 4L));
+        assertEquals(0x090A0B0C, file.getInt(Integer.MAX_VALUE + 4L));
+
+        byte[] destination = new byte[12];
+        file.read(Integer.MAX_VALUE - 4L, destination, 0, 12);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, destination);
+    }
+
+    /**
+     * Write the given content in a new temporary file.
+     * @param content Bytes of the file
+     * @return the path of the file.
+     */
+    private String write(byte[] content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content);
+        return file.getPath();
+    }
+}
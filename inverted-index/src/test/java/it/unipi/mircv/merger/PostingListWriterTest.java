@@ -0,0 +1,155 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.IndexReader;
+import it.unipi.mircv.beans.Posting;
+import it.unipi.mircv.beans.PostingList;
+import it.unipi.mircv.beans.SkipBlock;
+import it.unipi.mircv.beans.TermInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trip of the posting lists written by PostingListWriter and read by PostingList, for each codec and for both
+ * the layouts of the skip blocks.
+ */
+@RunWith(Parameterized.class)
+public class PostingListWriterTest {
+
+    private static final int NUMBER_OF_DOCUMENTS = 1 << 20;
+
+    //Lengths of the posting lists, around the sizes of the skip blocks
+    private static final int[] LENGTHS = {1, 2, 3, 4, 5, 8, 9, 15, 16, 17, 100, 1000, 5000};
+
+    @Parameterized.Parameters(name = "{0}, skip block size {1}")
+    public static Collection<Object[]> parameters() {
+        ArrayList<Object[]> parameters = new ArrayList<>();
+        for(String codec : new String[]{null, "vb", "pfordelta", "simple8b", "eliasfano", "streamvbyte"}){
+            for(int skipBlockSize : new int[]{0, 4, 128}){
+                parameters.add(new Object[]{codec, skipBlockSize});
+            }
+        }
+        return parameters;
+    }
+
+    @Parameterized.Parameter(0)
+    public String codec;
+
+    @Parameterized.Parameter(1)
+    public int skipBlockSize;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void postingListsAreReadAsWritten() throws IOException {
+        Random random = new Random(7);
+        TestIndex index = new TestIndex(folder.getRoot(), codec, skipBlockSize, NUMBER_OF_DOCUMENTS);
+
+        long[][] docIds = new long[LENGTHS.length][];
+        int[][] frequencies = new int[LENGTHS.length][];
+        TermInfo[] termInfos = new TermInfo[LENGTHS.length];
+
+        for(int i = 0; i < LENGTHS.length; i++){
+            docIds[i] = randomDocIds(random, LENGTHS[i], NUMBER_OF_DOCUMENTS);
+            frequencies[i] = randomFrequencies(random, LENGTHS[i]);
+            termInfos[i] = index.addPostingList("term" + i, docIds[i], frequencies[i]);
+        }
+
+        IndexReader reader = index.open();
+
+        for(int i = 0; i < LENGTHS.length; i++){
+            TermInfo termInfo = termInfos[i];
+            int postingsPerSkipBlock = SkipBlock.postingsPerSkipBlock(LENGTHS[i], skipBlockSize);
+
+            assertEquals(LENGTHS[i], termInfo.getPostingListLength());
+            assertEquals((LENGTHS[i] + postingsPerSkipBlock - 1) / postingsPerSkipBlock, termInfo.getNumberOfSkipBlocks());
+
+            PostingList postingList = new PostingList();
+            postingList.openList(termInfo, reader);
+
+            for(int j = 0; j < LENGTHS[i]; j++){
+                assertTrue(postingList.hasNext());
+                Posting posting = postingList.next();
+                assertEquals(docIds[i][j], posting.getDocId());
+                assertEquals(frequencies[i][j], posting.getFrequency());
+                assertEquals(docIds[i][j], postingList.getDocId());
+                assertEquals(frequencies[i][j], postingList.getFreq());
+            }
+
+            assertFalse(postingList.hasNext());
+            assertNull(postingList.next());
+            assertTrue(postingList.noMorePostings());
+        }
+    }
+
+    @Test
+    public void extremeDocIdsAndFrequencies() throws IOException {
+        TestIndex index = new TestIndex(folder.getRoot(), codec, skipBlockSize, NUMBER_OF_DOCUMENTS);
+
+        //First and last docids of the collection, consecutive docids and the largest frequency
+        long[] docIds = {0, 1, 2, NUMBER_OF_DOCUMENTS / 2, NUMBER_OF_DOCUMENTS - 2, NUMBER_OF_DOCUMENTS - 1};
+        int[] frequencies = {Integer.MAX_VALUE, 1, 1, 1 << 20, 1, Integer.MAX_VALUE};
+        TermInfo termInfo = index.addPostingList("term", docIds, frequencies);
+
+        PostingList postingList = new PostingList();
+        postingList.openList(termInfo, index.open());
+
+        for(int j = 0; j < docIds.length; j++){
+            Posting posting = postingList.next();
+            assertEquals(docIds[j], posting.getDocId());
+            assertEquals(frequencies[j], posting.getFrequency());
+        }
+        assertNull(postingList.next());
+    }
+
+    /**
+     * Generate increasing docids, with gaps of very different sizes.
+     * @param random Generator of random numbers
+     * @param count Number of docids
+     * @param numberOfDocuments Upper bound of the docids
+     * @return the docids.
+     */
+    static long[] randomDocIds(Random random, int count, int numberOfDocuments) {
+        long[] docIds = new long[count];
+        long docId = random.nextInt(100);
+        long maxGap = Math.max(1, (numberOfDocuments - docId - 1) / Math.max(1, count));
+
+        for(int i = 0; i < count; i++){
+            docIds[i] = docId;
+            long gap = 1 + (random.nextInt(4) == 0 ? (long) (random.nextDouble() * (maxGap - 1)) : random.nextInt(3));
+            docId += Math.min(gap, maxGap);
+        }
+        return docIds;
+    }
+
+    /**
+     * Generate frequencies, most of them small.
+     * @param random Generator of random numbers
+     * @param count Number of frequencies
+     * @return the frequencies.
+     */
+    static int[] randomFrequencies(Random random, int count) {
+        int[] frequencies = new int[count];
+        Arrays.fill(frequencies, 1);
+        for(int i = 0; i < count; i++){
+            if(random.nextInt(3) == 0){
+                frequencies[i] = 1 + random.nextInt(1 << random.nextInt(20));
+            }
+        }
+        return frequencies;
+    }
+}
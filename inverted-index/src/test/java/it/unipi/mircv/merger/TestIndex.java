@@ -0,0 +1,90 @@
+package it.unipi.mircv.merger;
+
+import it.unipi.mircv.beans.Configuration;
+import it.unipi.mircv.beans.IndexReader;
+import it.unipi.mircv.beans.Statistics;
+import it.unipi.mircv.beans.TermInfo;
+import it.unipi.mircv.compressor.PostingCodec;
+import it.unipi.mircv.io.BinaryWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Small inverted index written in a directory by PostingListWriter, as done by the merge, and read back with an
+ * IndexReader. The posting lists are added one at a time, then the index is opened.
+ */
+public class TestIndex {
+
+    //Paths of the files of the index
+    private final String docIdsPath;
+    private final String frequenciesPath;
+    private final String skipBlocksPath;
+
+    //Configuration of the index, used to open it
+    private final Configuration configuration = new Configuration();
+
+    //Writers of the files of the index
+    private final BinaryWriter docIdsFile;
+    private final BinaryWriter frequenciesFile;
+    private final BinaryWriter skipBlocksFile;
+
+    private final PostingListWriter postingListWriter;
+
+    /**
+     * Constructor of the class, it creates the files of the index.
+     * @param directory Directory in which the files are written
+     * @param codec Name of the codec used to compress the posting lists, null to disable the compression
+     * @param skipBlockSize Fixed number of postings of each skip block, 0 to use sqrt(n) postings
+     * @param numberOfDocuments Number of documents, the docids must be lower than it
+     */
+    public TestIndex(File directory, String codec, int skipBlockSize, int numberOfDocuments) throws IOException {
+        docIdsPath = new File(directory, "docids.txt").getPath();
+        frequenciesPath = new File(directory, "frequencies.txt").getPath();
+        skipBlocksPath = new File(directory, "skipblocks.txt").getPath();
+
+        configuration.setCompressed(codec != null);
+        if(codec != null){
+            configuration.setCodec(codec);
+        }
+        configuration.setSkipBlockSize(skipBlockSize);
+
+        docIdsFile = new BinaryWriter(docIdsPath);
+        frequenciesFile = new BinaryWriter(frequenciesPath);
+        skipBlocksFile = new BinaryWriter(skipBlocksPath);
+
+        int[] documentLengths = new int[numberOfDocuments];
+        Arrays.fill(documentLengths, 10);
+
+        postingListWriter = new PostingListWriter(docIdsFile, frequenciesFile, skipBlocksFile,
+                codec != null ? PostingCodec.forLayout(codec, skipBlockSize) : null, skipBlockSize,
+                documentLengths, new Statistics(1, numberOfDocuments, 10));
+    }
+
+    /**
+     * Write a posting list.
+     * @param term Term of the posting list
+     * @param docIds Docids of the postings, in increasing order
+     * @param frequencies Frequencies of the postings
+     * @return the lexicon entry of the term.
+     */
+    public TermInfo addPostingList(String term, long[] docIds, int[] frequencies) throws IOException {
+        postingListWriter.startPostingList(docIds.length);
+        for(int i = 0; i < docIds.length; i++){
+            postingListWriter.addPosting(docIds[i], frequencies[i]);
+        }
+        return postingListWriter.endPostingList(term);
+    }
+
+    /**
+     * Close the files of the index and open it.
+     * @return the reader of the index.
+     */
+    public IndexReader open() throws IOException {
+        docIdsFile.close();
+        frequenciesFile.close();
+        skipBlocksFile.close();
+        return new IndexReader(configuration, docIdsPath, frequenciesPath, skipBlocksPath);
+    }
+}
@@ -1,6 +1,8 @@
 package it.unipi.mircv;
 
 import it.unipi.mircv.beans.*;
+import it.unipi.mircv.compressor.StreamVByteCodec;
+import it.unipi.mircv.compressor.VectorStreamVByteDecoder;
 import it.unipi.mircv.parser.Parser;
 import it.unipi.mircv.scoring.Score;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
@@ -41,6 +43,16 @@ public class EvaluateQueries{
         System.out.println("[QUERY PROCESSOR] Building inverted index configuration:");
         System.out.println(configuration);
 
+        //Decode the Stream VByte posting lists with the Vector API, if its module has been added at runtime
+        if(configuration.getCompressed() && StreamVByteCodec.NAME.equals(configuration.getCodec())){
+            try {
+                StreamVByteCodec.setDecoder(new VectorStreamVByteDecoder());
+                System.out.println("[QUERY PROCESSOR] Using the vectorized Stream VByte decoder");
+            } catch (LinkageError e) {
+                System.out.println("[QUERY PROCESSOR] Vector API not available, using the scalar Stream VByte decoder");
+            }
+        }
+
         System.out.println("[QUERY PROCESSOR] Loading the lexicon in memory...");
         Lexicon lexicon = new Lexicon();
         lexicon.loadLexicon();
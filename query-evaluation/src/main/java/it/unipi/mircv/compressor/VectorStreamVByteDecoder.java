@@ -0,0 +1,103 @@
+package it.unipi.mircv.compressor;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Stream VByte decoder based on the Vector API, it decodes 4 values at a time: the 16 bytes starting from the data of
+ * the group are loaded in a vector and moved to the lanes of 4 integers with the shuffle of the control byte of the
+ * group, then the gaps are summed with a prefix sum on the vector. The groups near the end of the input, where 16
+ * bytes cannot be loaded, are decoded one value at a time.
+ * The module jdk.incubator.vector must be added at compile time and at runtime.
+ */
+public class VectorStreamVByteDecoder implements StreamVByteDecoder {
+
+    private static final VectorSpecies<Byte> BYTE_SPECIES = ByteVector.SPECIES_128;
+
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_128;
+
+    //For each control byte, the shuffle moving the bytes of the 4 values to the bytes of 4 little-endian integers
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final VectorShuffle<Byte>[] SHUFFLES = new VectorShuffle[256];
+
+    //For each control byte, the mask of the bytes of the integers that are part of a value, the others are zeroed
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final VectorMask<Byte>[] MASKS = new VectorMask[256];
+
+    //For each control byte, the number of data bytes of the group
+    private static final int[] LENGTHS = new int[256];
+
+    static {
+        for(int control = 0; control < 256; control++){
+            int[] indexes = new int[16];
+            boolean[] used = new boolean[16];
+
+            int position = 0;
+            for(int i = 0; i < 4; i++){
+                int length = ((control >>> (i << 1)) & 3) + 1;
+                for(int j = 0; j < 4; j++){
+                    if(j < length){
+                        indexes[(i << 2) + j] = position + j;
+                        used[(i << 2) + j] = true;
+                    }
+                }
+                position += length;
+            }
+
+            SHUFFLES[control] = VectorShuffle.fromArray(BYTE_SPECIES, indexes, 0);
+            MASKS[control] = VectorMask.fromArray(BYTE_SPECIES, used, 0);
+            LENGTHS[control] = position;
+        }
+    }
+
+    @Override
+    public void decode(byte[] input, int offset, int count, int[] output, boolean differential) {
+
+        int dataPosition = offset + StreamVByteCodec.controlBytes(count);
+
+        //Last value of the previous group, added to all the values of the group when decoding gaps
+        int previous = 0;
+
+        int i = 0;
+        while(i + 4 <= count && dataPosition + BYTE_SPECIES.length() <= input.length){
+            int control = input[offset + (i >>> 2)] & 0xFF;
+
+            IntVector values = ByteVector.fromArray(BYTE_SPECIES, input, dataPosition)
+                    .rearrange(SHUFFLES[control], MASKS[control])
+                    .reinterpretAsInts();
+
+            if(differential){
+                //Prefix sum of the 4 lanes: sum the vector shifted by one lane, then shifted by two lanes
+                values = values.add(values.unslice(1));
+                values = values.add(values.unslice(2));
+                values = values.add(previous);
+                previous = values.lane(INT_SPECIES.length() - 1);
+            }
+
+            values.intoArray(output, i);
+
+            dataPosition += LENGTHS[control];
+            i += 4;
+        }
+
+        //Decode the remaining values one at a time
+        for(; i < count; i++){
+            int length = ((input[offset + (i >>> 2)] >>> ((i & 3) << 1)) & 3) + 1;
+
+            int value = 0;
+            for(int j = 0; j < length; j++){
+                value |= (input[dataPosition++] & 0xFF) << (j << 3);
+            }
+
+            if(differential){
+                value += previous;
+                previous = value;
+            }
+
+            output[i] = value;
+        }
+    }
+}